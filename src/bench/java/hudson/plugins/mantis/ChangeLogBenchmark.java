@@ -0,0 +1,106 @@
+package hudson.plugins.mantis;
+
+import hudson.plugins.mantis.changeset.CVSChangeSet;
+import hudson.plugins.mantis.changeset.ChangeSet;
+import hudson.plugins.mantis.changeset.DefaultChangeSet;
+import hudson.plugins.mantis.changeset.GitChangeSet;
+import hudson.plugins.mantis.changeset.MercurialChangeSet;
+import hudson.plugins.mantis.changeset.SubversionChangeSet;
+import hudson.scm.CVSChangeLogSet;
+import hudson.scm.SubversionChangeLogSet;
+import java.util.Arrays;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Rendering the note text of one changeset, per SCM.
+ */
+@State(Scope.Benchmark)
+public class ChangeLogBenchmark {
+
+    private static final String MSG = "fix null check in the updater issue #1234";
+
+    @Param({ "default", "subversion", "git", "cvs", "mercurial" })
+    public String scm;
+
+    private ChangeSet changeSet;
+
+    @Setup(Level.Trial)
+    public void setUp(final JenkinsState jenkins) {
+        if ("subversion".equals(scm)) {
+            changeSet = new SubversionChangeSet(1234, null, createSubversionEntry());
+        } else if ("git".equals(scm)) {
+            changeSet = new GitChangeSet(1234, null, createGitEntry());
+        } else if ("cvs".equals(scm)) {
+            changeSet = new CVSChangeSet(1234, null, createCVSEntry());
+        } else if ("mercurial".equals(scm)) {
+            changeSet = new MercurialChangeSet(1234, null, createMercurialEntry());
+        } else {
+            changeSet = new DefaultChangeSet(1234, null,
+                    CommitMessages.toChangeLogSet(Arrays.asList(MSG)).iterator().next());
+        }
+    }
+
+    @Benchmark
+    public String createChangeLog() {
+        return changeSet.createChangeLog();
+    }
+
+    private static SubversionChangeLogSet.LogEntry createSubversionEntry() {
+        final SubversionChangeLogSet.LogEntry entry = new SubversionChangeLogSet.LogEntry();
+        entry.setRevision(4321);
+        entry.setUser("alice");
+        entry.setMsg(MSG);
+        for (final String file : new String[] { "/trunk/src/Foo.java", "/trunk/src/Bar.java" }) {
+            final SubversionChangeLogSet.Path path = new SubversionChangeLogSet.Path();
+            path.setAction("M");
+            path.setValue(file);
+            entry.addPath(path);
+        }
+        return entry;
+    }
+
+    private static hudson.plugins.git.GitChangeSet createGitEntry() {
+        return new hudson.plugins.git.GitChangeSet(Arrays.asList(
+                "commit 2f1c0c4b8a6a0d3f9c3e1e8c6f0b5a4d3c2b1a09",
+                "tree 7c1f0e2d3b4a59687766554433221100ffeeddcc",
+                "author alice <alice@example.com> 1400000000 +0900",
+                "committer alice <alice@example.com> 1400000000 +0900",
+                "",
+                "    " + MSG,
+                "",
+                ":100644 100644 0123456789abcdef0123456789abcdef01234567 "
+                        + "fedcba9876543210fedcba9876543210fedcba98 M\tsrc/Foo.java",
+                ":100644 100644 0123456789abcdef0123456789abcdef01234567 "
+                        + "fedcba9876543210fedcba9876543210fedcba98 M\tsrc/Bar.java"), true);
+    }
+
+    private static CVSChangeLogSet.CVSChangeLog createCVSEntry() {
+        final CVSChangeLogSet.CVSChangeLog entry = new CVSChangeLogSet.CVSChangeLog();
+        entry.setUser("alice");
+        entry.setMsg(MSG);
+        for (final String file : new String[] { "src/Foo.java", "src/Bar.java" }) {
+            final CVSChangeLogSet.File f = new CVSChangeLogSet.File();
+            f.setName(file);
+            f.setFullName("/cvsroot/project/" + file);
+            f.setRevision("1.2");
+            f.setPrevrevision("1.1");
+            entry.addFile(f);
+        }
+        return entry;
+    }
+
+    private static hudson.plugins.mercurial.MercurialChangeSet createMercurialEntry() {
+        final hudson.plugins.mercurial.MercurialChangeSet entry = new hudson.plugins.mercurial.MercurialChangeSet();
+        entry.setNode("2f1c0c4b8a6a0d3f9c3e1e8c6f0b5a4d3c2b1a09");
+        entry.setRev(4321);
+        entry.setUser("alice");
+        entry.setMsg(MSG);
+        entry.setFiles("src/Foo.java src/Bar.java");
+        return entry;
+    }
+}
@@ -0,0 +1,101 @@
+package hudson.plugins.mantis;
+
+import hudson.model.User;
+import hudson.scm.ChangeLogSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Synthetic commit message corpus used by the benchmarks.
+ *
+ * Roughly one message in ten refers to an issue, the rest are plain text of
+ * similar length, so the numbers reflect the usual case of a job whose
+ * changelog mostly does not mention Mantis.
+ */
+final class CommitMessages {
+
+    private static final String[] WORDS = {
+        "fix", "refactor", "update", "remove", "add", "typo", "build", "tests", "cleanup", "merge", "branch",
+        "release", "docs", "config", "null", "check", "handle", "error", "logging", "version", "bump"
+    };
+
+    private CommitMessages() {
+    }
+
+    static List<String> generate(final int size) {
+        final Random random = new Random(42);
+        final List<String> messages = new ArrayList<String>(size);
+        for (int i = 0; i < size; i++) {
+            final StringBuilder msg = new StringBuilder();
+            final int words = 5 + random.nextInt(20);
+            for (int w = 0; w < words; w++) {
+                if (w > 0) {
+                    msg.append(' ');
+                }
+                msg.append(WORDS[random.nextInt(WORDS.length)]);
+            }
+            if (random.nextInt(10) == 0) {
+                msg.append(" issue #").append(1 + random.nextInt(1000));
+            }
+            messages.add(msg.toString());
+        }
+        return messages;
+    }
+
+    static ChangeLogSet<Entry> toChangeLogSet(final List<String> messages) {
+        return new SyntheticChangeLogSet(messages);
+    }
+
+    /**
+     * Changelog holding one entry per message.
+     */
+    private static final class SyntheticChangeLogSet extends ChangeLogSet<Entry> {
+
+        private final List<Entry> entries = new ArrayList<Entry>();
+
+        SyntheticChangeLogSet(final List<String> messages) {
+            super(null, null);
+            for (final String msg : messages) {
+                entries.add(new Entry(this, msg));
+            }
+        }
+
+        @Override
+        public boolean isEmptySet() {
+            return entries.isEmpty();
+        }
+
+        public Iterator<Entry> iterator() {
+            return entries.iterator();
+        }
+    }
+
+    static final class Entry extends ChangeLogSet.Entry {
+
+        private final String msg;
+
+        Entry(final ChangeLogSet<Entry> parent, final String msg) {
+            this.msg = msg;
+            setParent(parent);
+        }
+
+        @Override
+        public String getMsg() {
+            return msg;
+        }
+
+        @Override
+        public User getAuthor() {
+            return User.getUnknown();
+        }
+
+        @Override
+        public Collection<String> getAffectedPaths() {
+            return Arrays.asList("src/main/java/Foo.java", "src/main/java/Bar.java");
+        }
+    }
+}
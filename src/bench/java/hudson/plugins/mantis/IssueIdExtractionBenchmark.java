@@ -0,0 +1,49 @@
+package hudson.plugins.mantis;
+
+import hudson.plugins.mantis.changeset.ChangeSet;
+import hudson.scm.ChangeLogSet;
+import hudson.scm.ChangeLogSet.Entry;
+import java.util.Collections;
+import java.util.List;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Extraction of issue ids from a large changelog.
+ *
+ * "pattern" uses the default pattern, which is pre-filtered by its literal
+ * prefix; "regex" uses an equivalent custom regex, which is not.
+ */
+@State(Scope.Benchmark)
+public class IssueIdExtractionBenchmark {
+
+    @Param({ "pattern", "regex" })
+    public String config;
+
+    @Param({ "10000" })
+    public int size;
+
+    private List<ChangeLogSet<? extends Entry>> changeSets;
+
+    private MantisProjectProperty mpp;
+
+    @Setup(Level.Trial)
+    public void setUp(final JenkinsState jenkins) {
+        changeSets = Collections.<ChangeLogSet<? extends Entry>>singletonList(
+                CommitMessages.toChangeLogSet(CommitMessages.generate(size)));
+        if ("regex".equals(config)) {
+            mpp = new MantisProjectProperty(null, 0, null, null, "(?<=issue #?)(\\d+)(?=)", true);
+        } else {
+            mpp = new MantisProjectProperty(null, 0, null, null, null, true);
+        }
+    }
+
+    @Benchmark
+    public List<ChangeSet> findChangeSets() {
+        return Updater.findChangeSetsFromChangeLogSets(changeSets, mpp);
+    }
+}
@@ -0,0 +1,32 @@
+package hudson.plugins.mantis;
+
+import hudson.model.FreeStyleBuild;
+import hudson.model.Result;
+import hudson.plugins.mantis.scripts.JellyScriptContent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Rendering the issue description of a failed build from the bundled
+ * Jelly template.
+ */
+@State(Scope.Benchmark)
+public class JellyScriptContentBenchmark {
+
+    private final JellyScriptContent content = new JellyScriptContent();
+
+    private FreeStyleBuild build;
+
+    @Setup(Level.Trial)
+    public void setUp(final JenkinsState jenkins) throws Exception {
+        build = jenkins.rule.buildAndAssertSuccess(jenkins.rule.createFreeStyleProject());
+    }
+
+    @Benchmark
+    public String render() throws Exception {
+        return content.getContent(build, Result.FAILURE);
+    }
+}
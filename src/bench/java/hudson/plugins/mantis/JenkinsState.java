@@ -0,0 +1,66 @@
+package hudson.plugins.mantis;
+
+import java.util.concurrent.CountDownLatch;
+import org.junit.runner.Description;
+import org.junit.runners.model.Statement;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Runs a {@link JenkinsRule} instance for the whole benchmark trial.
+ *
+ * The rule is evaluated in its own thread, which waits until the trial ends.
+ */
+@State(Scope.Benchmark)
+public class JenkinsState {
+
+    public JenkinsRule rule;
+
+    private final CountDownLatch started = new CountDownLatch(1);
+
+    private final CountDownLatch finished = new CountDownLatch(1);
+
+    private volatile Throwable failure;
+
+    private Thread thread;
+
+    @Setup(Level.Trial)
+    public void start() throws Throwable {
+        rule = new JenkinsRule();
+        rule.timeout = 0;
+        final Statement statement = rule.apply(new Statement() {
+            @Override
+            public void evaluate() throws Throwable {
+                started.countDown();
+                finished.await();
+            }
+        }, Description.createTestDescription(JenkinsState.class, "benchmark"));
+
+        thread = new Thread("Jenkins for benchmarks") {
+            @Override
+            public void run() {
+                try {
+                    statement.evaluate();
+                } catch (Throwable t) {
+                    failure = t;
+                    started.countDown();
+                }
+            }
+        };
+        thread.start();
+        started.await();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() throws InterruptedException {
+        finished.countDown();
+        thread.join();
+    }
+}
@@ -0,0 +1,60 @@
+package hudson.plugins.mantis;
+
+import hudson.MarkupText;
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+import hudson.plugins.mantis.model.MantisIssue;
+import java.net.URL;
+import java.util.List;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Annotating a changelog page with links to Mantis. Issue summaries come
+ * from the {@link MantisBuildAction} of the build, so no SOAP call is made.
+ */
+@State(Scope.Benchmark)
+public class LinkAnnotatorBenchmark {
+
+    @Param({ "1000" })
+    public int size;
+
+    private final MantisLinkAnnotator annotator = new MantisLinkAnnotator();
+
+    private FreeStyleBuild build;
+
+    private List<String> messages;
+
+    @Setup(Level.Trial)
+    public void setUp(final JenkinsState jenkins) throws Exception {
+        final MantisSite site = new MantisSite(new URL("http://localhost/mantis/"), "V120", null, null, null, null);
+        MantisProjectProperty.DESCRIPTOR.addSite(site);
+
+        final FreeStyleProject project = jenkins.rule.createFreeStyleProject();
+        final MantisProjectProperty mpp = new MantisProjectProperty(site.getName(), 0, null, null, null, true);
+        project.addProperty(mpp);
+        build = jenkins.rule.buildAndAssertSuccess(project);
+
+        final MantisIssue[] issues = new MantisIssue[1000];
+        for (int i = 0; i < issues.length; i++) {
+            issues[i] = new MantisIssue(i + 1, "summary of issue " + (i + 1));
+        }
+        build.getActions().add(new MantisBuildAction(mpp.getRegexpPattern(), issues));
+
+        messages = CommitMessages.generate(size);
+    }
+
+    @Benchmark
+    public void annotate(final Blackhole bh) {
+        for (final String msg : messages) {
+            final MarkupText text = new MarkupText(msg);
+            annotator.annotate(build, null, text);
+            bh.consume(text.toString(false));
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package hudson.plugins.mantis;
+
+import java.util.regex.Pattern;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Compiling the issue id pattern of a job with and without {@link PatternCache}.
+ * Run with {@code -prof gc} to see the allocation per configured job.
+ */
+@State(Scope.Benchmark)
+public class PatternCacheBenchmark {
+
+    private final String regex = "(?<=issue #?)(\\d+)";
+
+    @Benchmark
+    public Pattern compile() {
+        return Pattern.compile(regex);
+    }
+
+    @Benchmark
+    public Pattern cached() {
+        return PatternCache.compile(regex);
+    }
+}
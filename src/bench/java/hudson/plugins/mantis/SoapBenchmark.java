@@ -0,0 +1,72 @@
+package hudson.plugins.mantis;
+
+import hudson.plugins.mantis.model.MantisIssue;
+import hudson.plugins.mantis.soap.MantisSession;
+import hudson.plugins.mantis.soap.MantisSessionFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * SOAP round trips against {@link StubMantisServer}.
+ *
+ * "pooled" goes through {@link MantisSite} with its session pool, "unpooled"
+ * creates a new session (and Axis engine) per call. The "WithoutKeepAlive"
+ * variants fork with keep-alive connections disabled.
+ */
+@State(Scope.Benchmark)
+public class SoapBenchmark {
+
+    private static final String NO_KEEP_ALIVE =
+            "-Dhudson.plugins.mantis.soap.AbstractMantisSession.disableKeepAlive=true";
+
+    private StubMantisServer server;
+
+    private MantisSite site;
+
+    @Setup(Level.Trial)
+    public void setUp(final JenkinsState jenkins) throws Exception {
+        server = new StubMantisServer();
+        server.start();
+        site = new MantisSite(server.getUrl(), "V120", "bench", "bench", null, null);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        server.stop();
+    }
+
+    @Benchmark
+    public MantisIssue pooledGetIssue() throws MantisHandlingException {
+        site.getIssueCache().clear();
+        return site.getIssue(1);
+    }
+
+    @Benchmark
+    @Fork(jvmArgsAppend = NO_KEEP_ALIVE)
+    public MantisIssue pooledGetIssueWithoutKeepAlive() throws MantisHandlingException {
+        site.getIssueCache().clear();
+        return site.getIssue(1);
+    }
+
+    @Benchmark
+    public MantisIssue unpooledGetIssue() throws MantisHandlingException {
+        final MantisSession session = MantisSessionFactory.getSession(site);
+        return session.getIssue(1);
+    }
+
+    @Benchmark
+    public void addNote() throws MantisHandlingException {
+        site.updateIssue(1, "benchmark note", false);
+    }
+
+    @Benchmark
+    @Fork(jvmArgsAppend = NO_KEEP_ALIVE)
+    public void addNoteWithoutKeepAlive() throws MantisHandlingException {
+        site.updateIssue(1, "benchmark note", false);
+    }
+}
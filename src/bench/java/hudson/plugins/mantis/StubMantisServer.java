@@ -0,0 +1,105 @@
+package hudson.plugins.mantis;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Minimal MantisConnect endpoint answering with canned SOAP responses, so
+ * the benchmarks measure the client side without a real Mantis.
+ *
+ * Supports mc_version, mc_issue_get and mc_issue_note_add.
+ */
+final class StubMantisServer {
+
+    private static final Pattern ISSUE_ID = Pattern.compile("<issue_id[^>]*>(\\d+)</issue_id>");
+
+    private static final String ENVELOPE_HEAD = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+            + "<SOAP-ENV:Envelope xmlns:SOAP-ENV=\"http://schemas.xmlsoap.org/soap/envelope/\""
+            + " xmlns:SOAP-ENC=\"http://schemas.xmlsoap.org/soap/encoding/\""
+            + " xmlns:xsd=\"http://www.w3.org/2001/XMLSchema\""
+            + " xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\""
+            + " xmlns:tns=\"http://futureware.biz/mantisconnect\""
+            + " SOAP-ENV:encodingStyle=\"http://schemas.xmlsoap.org/soap/encoding/\"><SOAP-ENV:Body>";
+
+    private static final String ENVELOPE_TAIL = "</SOAP-ENV:Body></SOAP-ENV:Envelope>";
+
+    private final HttpServer server;
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    StubMantisServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/mantis/api/soap/mantisconnect.php", new SoapHandler());
+        server.setExecutor(executor);
+    }
+
+    void start() {
+        server.start();
+    }
+
+    void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    URL getUrl() throws MalformedURLException {
+        return new URL("http://localhost:" + server.getAddress().getPort() + "/mantis/");
+    }
+
+    private static String respond(final String request) {
+        final StringBuilder body = new StringBuilder(ENVELOPE_HEAD);
+        if (request.contains("mc_issue_note_add")) {
+            body.append("<ns1:mc_issue_note_addResponse xmlns:ns1=\"http://futureware.biz/mantisconnect\">");
+            body.append("<return xsi:type=\"xsd:integer\">1</return>");
+            body.append("</ns1:mc_issue_note_addResponse>");
+        } else if (request.contains("mc_issue_get")) {
+            final Matcher m = ISSUE_ID.matcher(request);
+            final String id = m.find() ? m.group(1) : "1";
+            body.append("<ns1:mc_issue_getResponse xmlns:ns1=\"http://futureware.biz/mantisconnect\">");
+            body.append("<return xsi:type=\"tns:IssueData\">");
+            body.append("<id xsi:type=\"xsd:integer\">").append(id).append("</id>");
+            body.append("<summary xsi:type=\"xsd:string\">summary of issue ").append(id).append("</summary>");
+            body.append("<description xsi:type=\"xsd:string\">description</description>");
+            body.append("</return></ns1:mc_issue_getResponse>");
+        } else {
+            body.append("<ns1:mc_versionResponse xmlns:ns1=\"http://futureware.biz/mantisconnect\">");
+            body.append("<return xsi:type=\"xsd:string\">1.2.19</return>");
+            body.append("</ns1:mc_versionResponse>");
+        }
+        return body.append(ENVELOPE_TAIL).toString();
+    }
+
+    private static final class SoapHandler implements HttpHandler {
+
+        public void handle(final HttpExchange exchange) throws IOException {
+            final InputStream in = exchange.getRequestBody();
+            final String request;
+            try {
+                request = IOUtils.toString(in, "UTF-8");
+            } finally {
+                in.close();
+            }
+            final byte[] response = respond(request).getBytes("UTF-8");
+            exchange.getResponseHeaders().set("Content-Type", "text/xml; charset=utf-8");
+            exchange.sendResponseHeaders(200, response.length);
+            final OutputStream out = exchange.getResponseBody();
+            try {
+                out.write(response);
+            } finally {
+                out.close();
+            }
+        }
+    }
+}
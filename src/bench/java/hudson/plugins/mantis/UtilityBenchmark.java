@@ -0,0 +1,26 @@
+package hudson.plugins.mantis;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Escaping helpers used on every annotated changelog line.
+ */
+@State(Scope.Benchmark)
+public class UtilityBenchmark {
+
+    private final String summary = "NullPointerException in <Foo> when \"bar\" & 'baz' are empty";
+
+    private final String pattern = "issue #%ID% (fixed) [done]";
+
+    @Benchmark
+    public String escape() {
+        return Utility.escape(summary);
+    }
+
+    @Benchmark
+    public String escapeRegexp() {
+        return Utility.escapeRegexp(pattern);
+    }
+}
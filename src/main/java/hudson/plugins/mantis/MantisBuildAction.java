@@ -1,33 +1,88 @@
 package hudson.plugins.mantis;
 
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import hudson.model.Action;
 import hudson.plugins.mantis.model.MantisIssue;
 import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.regex.Pattern;
 
 /**
  * Mantis issues related to the build.
  *
+ * Issues are kept as sorted ids and their summaries, which are shared with
+ * other builds referring to the same issues. The issue id pattern is kept as
+ * a string shared by all builds of the job, and compiled through
+ * {@link PatternCache} when the changelog is annotated.
+ *
  * @author Seiji Sogabe
  */
 public final class MantisBuildAction implements Action {
 
     private static final long serialVersionUID = 1L;
 
-    private final MantisIssue[] issues;
+    private static final Interner<String> STRINGS = Interners.newWeakInterner();
+
+    /**
+     * issues saved by older versions.
+     */
+    @Deprecated
+    private MantisIssue[] issues;
+
+    /**
+     * ids of the issues in ascending order.
+     */
+    private int[] ids;
 
-    private final Pattern pattern;
+    /**
+     * summaries of the issues, in the order of {@link #ids}.
+     */
+    private String[] summaries;
+
+    /**
+     * compiled pattern saved by older versions.
+     */
+    @Deprecated
+    private Pattern pattern;
+
+    /**
+     * regular expression of the issue id pattern, or null.
+     */
+    private String regex;
 
     public MantisIssue[] getIssues() {
-        return Arrays.copyOf(issues, issues.length);
+        final MantisIssue[] result = new MantisIssue[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            result[i] = new MantisIssue(ids[i], summaries[i]);
+        }
+        return result;
     }
 
     public MantisBuildAction(final Pattern pattern, final MantisIssue[] issues) {
-        this.pattern = pattern;
+        this.regex = pattern != null ? intern(pattern.pattern()) : null;
         if (issues == null) {
             throw new IllegalArgumentException("issues should not be null.");
         }
-        this.issues = Arrays.copyOf(issues, issues.length);
+        setIssues(issues);
+    }
+
+    private void setIssues(final MantisIssue[] issues) {
+        final Map<Integer, String> sorted = new TreeMap<Integer, String>();
+        for (final MantisIssue issue : issues) {
+            if (!sorted.containsKey(issue.getId())) {
+                sorted.put(issue.getId(), issue.getSummary());
+            }
+        }
+        ids = new int[sorted.size()];
+        summaries = new String[sorted.size()];
+        int i = 0;
+        for (final Map.Entry<Integer, String> entry : sorted.entrySet()) {
+            ids[i] = entry.getKey();
+            summaries[i] = intern(entry.getValue());
+            i++;
+        }
     }
 
     @Override
@@ -41,16 +96,15 @@ public final class MantisBuildAction implements Action {
     }
 
     public Pattern getPattern() {
-        return pattern;
+        return regex != null ? PatternCache.compile(regex) : null;
     }
 
     public MantisIssue getIssue(final int id) {
-        for (final MantisIssue issue : issues) {
-            if (issue.getId() == id) {
-                return issue;
-            }
+        final int index = Arrays.binarySearch(ids, id);
+        if (index < 0) {
+            return null;
         }
-        return null;
+        return new MantisIssue(id, summaries[index]);
     }
 
     @Override
@@ -58,4 +112,27 @@ public final class MantisBuildAction implements Action {
         return null;
     }
 
+    protected Object readResolve() {
+        if (pattern != null) {
+            regex = pattern.pattern();
+            pattern = null;
+        }
+        regex = intern(regex);
+        if (issues != null) {
+            setIssues(issues);
+            issues = null;
+        } else if (ids == null) {
+            ids = new int[0];
+            summaries = new String[0];
+        } else {
+            for (int i = 0; i < summaries.length; i++) {
+                summaries[i] = intern(summaries[i]);
+            }
+        }
+        return this;
+    }
+
+    private static String intern(final String value) {
+        return value != null ? STRINGS.intern(value) : null;
+    }
 }
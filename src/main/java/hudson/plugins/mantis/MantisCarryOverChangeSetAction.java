@@ -2,11 +2,24 @@ package hudson.plugins.mantis;
 
 import hudson.model.InvisibleAction;
 import hudson.plugins.mantis.changeset.ChangeSet;
+import hudson.plugins.mantis.changeset.DetachedChangeSet;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * Remembers Mantis IDs and changesSet that need to be updated later, when we get a successfull build.
+ *
+ * ChangeSets are kept as {@link DetachedChangeSet}s, so the action does not
+ * keep the changelog of the failed build reachable. The same changeSet is
+ * kept once, and only the last {@link #MAX_CHANGESETS} are kept.
+ *
  * @author Seiji Sogabe
  * @since 0.7
  */
@@ -14,13 +27,61 @@ public class MantisCarryOverChangeSetAction extends InvisibleAction {
 
     private static final long serialVersionUID = 1L;
 
-    private final List<ChangeSet> changeSets;
+    private static final int MAX_CHANGESETS =
+            Integer.getInteger(MantisCarryOverChangeSetAction.class.getName() + ".maxChangeSets", 1000);
+
+    private List<ChangeSet> changeSets;
 
     public MantisCarryOverChangeSetAction(final List<ChangeSet> changeSet) {
-        this.changeSets = changeSet;
+        this(changeSet, MAX_CHANGESETS);
+    }
+
+    MantisCarryOverChangeSetAction(final List<ChangeSet> changeSet, final int maxChangeSets) {
+        this.changeSets = detach(changeSet, maxChangeSets);
     }
 
     public List<ChangeSet> getChangeSets() {
         return Collections.unmodifiableList(changeSets);
     }
+
+    private static List<ChangeSet> detach(final List<ChangeSet> changeSets, final int maxChangeSets) {
+        // changeSets for several issues of one commit share the changelog
+        final Map<String, String> changeLogs = new HashMap<String, String>();
+        final Set<DetachedChangeSet> detached = new LinkedHashSet<DetachedChangeSet>();
+        for (final ChangeSet changeSet : changeSets) {
+            String changeLog;
+            try {
+                changeLog = DetachedChangeSet.detach(changeSet).createChangeLog();
+            } catch (final RuntimeException e) {
+                // changeSets saved by older versions may miss the repository browser
+                LOGGER.log(Level.FINE, "Failed to create the changelog of issue #" + changeSet.getId(), e);
+                changeLog = "";
+            }
+            final String shared = changeLogs.get(changeLog);
+            if (shared == null) {
+                changeLogs.put(changeLog, changeLog);
+            } else {
+                changeLog = shared;
+            }
+            detached.add(new DetachedChangeSet(changeSet.getId(), changeLog));
+        }
+
+        final List<ChangeSet> result = new ArrayList<ChangeSet>(detached);
+        if (maxChangeSets > 0 && result.size() > maxChangeSets) {
+            LOGGER.log(Level.FINE, "Dropping {0} carried over changeSets", result.size() - maxChangeSets);
+            return new ArrayList<ChangeSet>(result.subList(result.size() - maxChangeSets, result.size()));
+        }
+        return result;
+    }
+
+    protected Object readResolve() {
+        if (changeSets == null) {
+            changeSets = new ArrayList<ChangeSet>();
+        } else {
+            changeSets = detach(changeSets, MAX_CHANGESETS);
+        }
+        return this;
+    }
+
+    private static final Logger LOGGER = Logger.getLogger(MantisCarryOverChangeSetAction.class.getName());
 }
@@ -1,5 +1,14 @@
 package hudson.plugins.mantis;
 
+import hudson.plugins.mantis.soap.CircuitOpenException;
+import java.io.InterruptedIOException;
+import java.net.SocketException;
+import java.net.UnknownHostException;
+import javax.net.ssl.SSLException;
+import javax.xml.namespace.QName;
+import org.apache.axis.AxisFault;
+import org.apache.commons.httpclient.NoHttpResponseException;
+
 /**
  * Mantis handling Exception.
  * 
@@ -25,4 +34,38 @@ public final class MantisHandlingException extends Exception {
         super(message, cause);
     }
 
+    /**
+     * fault code of Axis for HTTP errors, e.g. 503 returned by a proxy.
+     */
+    private static final String HTTP_FAULT_CODE = "HTTP";
+
+    /**
+     * Returns true if this was caused by an I/O error, e.g. Mantis could not
+     * be reached, rather than by Mantis rejecting the request.
+     *
+     * SOAP faults returned by Mantis, e.g. for an issue which does not exist
+     * or is not accessible, are not transport failures.
+     */
+    public boolean isTransportFailure() {
+        for (Throwable t = getCause(); t != null; t = t.getCause()) {
+            if (t instanceof AxisFault && isHttpFault((AxisFault) t)) {
+                return true;
+            }
+            if (t instanceof SocketException || t instanceof UnknownHostException
+                    || t instanceof InterruptedIOException || t instanceof NoHttpResponseException
+                    || t instanceof SSLException || t instanceof CircuitOpenException) {
+                return true;
+            }
+            if (t.getCause() == t) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isHttpFault(final AxisFault fault) {
+        final QName code = fault.getFaultCode();
+        return code != null && HTTP_FAULT_CODE.equals(code.getLocalPart());
+    }
+
 }
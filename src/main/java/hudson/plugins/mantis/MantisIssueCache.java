@@ -0,0 +1,149 @@
+package hudson.plugins.mantis;
+
+import hudson.plugins.mantis.model.MantisIssue;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory cache of Mantis issue summaries of one site.
+ *
+ * Entries expire after a TTL and the least recently used entries are evicted
+ * when the cache is full. Issues which could not be retrieved are remembered
+ * for a shorter period so that they are not requested again and again.
+ */
+public final class MantisIssueCache {
+
+    private static final String PREFIX = MantisIssueCache.class.getName();
+
+    private static final int MAX_SIZE = Integer.getInteger(PREFIX + ".maxSize", 1000);
+
+    private static final long TTL = TimeUnit.SECONDS.toMillis(Integer.getInteger(PREFIX + ".ttl", 600));
+
+    private static final long NEGATIVE_TTL =
+            TimeUnit.SECONDS.toMillis(Integer.getInteger(PREFIX + ".negativeTtl", 60));
+
+    private final LinkedHashMap<Integer, CachedIssue> entries;
+
+    private long hitCount;
+
+    private long missCount;
+
+    private long evictionCount;
+
+    public MantisIssueCache() {
+        this(MAX_SIZE);
+    }
+
+    MantisIssueCache(final int maxSize) {
+        this.entries = new LinkedHashMap<Integer, CachedIssue>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<Integer, CachedIssue> eldest) {
+                if (size() > maxSize) {
+                    evictionCount++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the entry for the specified id, or null if it is not cached or
+     * has expired.
+     */
+    public synchronized CachedIssue get(final int id) {
+        final CachedIssue entry = entries.get(id);
+        if (entry == null || entry.isExpired(System.currentTimeMillis())) {
+            missCount++;
+            return null;
+        }
+        hitCount++;
+        return entry;
+    }
+
+    /**
+     * Returns the cached issue even if it has expired, or null.
+     */
+    public synchronized MantisIssue peek(final int id) {
+        final CachedIssue entry = entries.get(id);
+        if (entry == null) {
+            return null;
+        }
+        return entry.issue;
+    }
+
+    public synchronized void put(final MantisIssue issue) {
+        entries.put(issue.getId(), new CachedIssue(issue, null, System.currentTimeMillis() + TTL));
+    }
+
+    /**
+     * Remembers that the issue could not be retrieved.
+     */
+    public synchronized void putMissing(final int id, final String message) {
+        entries.put(id, new CachedIssue(null, message, System.currentTimeMillis() + NEGATIVE_TTL));
+    }
+
+    public synchronized void invalidate(final int id) {
+        entries.remove(id);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * Cached issue, or the reason why it could not be retrieved.
+     */
+    public static final class CachedIssue {
+
+        private final MantisIssue issue;
+
+        private final String message;
+
+        private final long expires;
+
+        private CachedIssue(final MantisIssue issue, final String message, final long expires) {
+            this.issue = issue;
+            this.message = message;
+            this.expires = expires;
+        }
+
+        public boolean isMissing() {
+            return issue == null;
+        }
+
+        /**
+         * Returns the issue, or throws the cached failure.
+         */
+        public MantisIssue getIssue() throws MantisHandlingException {
+            if (issue == null) {
+                throw new MantisHandlingException(message);
+            }
+            return issue;
+        }
+
+        private boolean isExpired(final long now) {
+            return now >= expires;
+        }
+    }
+}
@@ -3,11 +3,14 @@ package hudson.plugins.mantis;
 import hudson.Extension;
 import hudson.Launcher;
 import hudson.Util;
+import hudson.console.AnnotatedLargeText;
 import hudson.model.AbstractBuild;
 import hudson.model.AbstractProject;
 import hudson.model.BuildListener;
+import hudson.model.Hudson;
 
 import hudson.model.Result;
+import hudson.model.Run;
 import hudson.plugins.mantis.model.MantisCategory;
 import hudson.plugins.mantis.model.MantisIssue;
 import hudson.plugins.mantis.model.MantisProject;
@@ -17,11 +20,18 @@ import hudson.tasks.BuildStepDescriptor;
 import hudson.tasks.BuildStepMonitor;
 import hudson.tasks.Publisher;
 import hudson.tasks.Recorder;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
-
-
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.PrintStream;
+import java.io.Writer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.zip.GZIPOutputStream;
 import org.kohsuke.stapler.DataBoundConstructor;
 
 /**
@@ -33,15 +43,61 @@ public final class MantisIssueRegister extends Recorder {
     private String threshold;
     
     private boolean keepTicketPrivate;
+
+    private boolean attachReport;
+
+    private boolean suppressDuplicates;
     
     public static final String FAILURE = "failure";
     
     public static final String FAILUREORUNSTABL = "failureOrUnstable";
     
+    /**
+     * file name of the report attached to the issue, in the build directory.
+     */
+    public static final String REPORT_FILE_NAME = "mantis-report.txt.gz";
+
+    /**
+     * max length of the description when the full report is attached.
+     */
+    private static final int ATTACHED_DESCRIPTION_LENGTH = Integer.getInteger(
+            MantisIssueRegister.class.getName() + ".attachedDescriptionLength", 4 * 1024);
+
+    /**
+     * max number of bytes of the end of the console log copied to the report.
+     */
+    private static final long MAX_REPORT_LOG_SIZE = Long.getLong(
+            MantisIssueRegister.class.getName() + ".maxReportLogSize", 5 * 1024 * 1024);
+
+    /**
+     * compressed reports larger than this number of bytes are not uploaded.
+     */
+    static final long MAX_ATTACHMENT_SIZE = Long.getLong(
+            MantisIssueRegister.class.getName() + ".maxAttachmentSize", 2 * 1024 * 1024);
+
+    /**
+     * max number of previous builds searched for the issue filed for a job.
+     */
+    private static final int MAX_BUILDS_TO_SEARCH = Integer.getInteger(
+            MantisIssueRegister.class.getName() + ".maxBuildsToSearch", 100);
+
+    /**
+     * issues filed for jobs, keyed by job name and site URL.
+     */
+    private static final ConcurrentMap<String, Integer> FILED_ISSUES = new ConcurrentHashMap<String, Integer>();
+
     @DataBoundConstructor
-    public MantisIssueRegister(String threshold, boolean keepTicketPrivate) {
+    public MantisIssueRegister(String threshold, boolean keepTicketPrivate, boolean attachReport,
+            boolean suppressDuplicates) {
         this.threshold = Util.fixEmptyAndTrim(threshold);
         this.keepTicketPrivate = keepTicketPrivate;
+        this.attachReport = attachReport;
+        this.suppressDuplicates = suppressDuplicates;
+    }
+
+    @Deprecated
+    public MantisIssueRegister(String threshold, boolean keepTicketPrivate) {
+        this(threshold, keepTicketPrivate, false, false);
     }
     
     public String getThreshold() {
@@ -51,6 +107,14 @@ public final class MantisIssueRegister extends Recorder {
     public boolean isKeepTicketPrivate() {
         return keepTicketPrivate;
     }
+
+    public boolean isAttachReport() {
+        return attachReport;
+    }
+
+    public boolean isSuppressDuplicates() {
+        return suppressDuplicates;
+    }
     
     @Override
     public BuildStepMonitor getRequiredMonitorService() {
@@ -74,12 +138,23 @@ public final class MantisIssueRegister extends Recorder {
             return true;
         }
         
+        if (suppressDuplicates && addNoteToFiledIssue(build, site, logger)) {
+            return true;
+        }
+
         int no;
         MantisIssue issue = createIssue(build, listener);
         if (issue == null) {
             Utility.log(logger, "skipping file a ticket ...");
             return true;
         }
+        if (MantisProjectProperty.DESCRIPTOR.isUseOutbox()) {
+            // a note to the issue if one has been filed for the job by the time this is sent
+            String note = suppressDuplicates ? failedAgainText(build) : null;
+            MantisOutbox.get().addIssue(site, issue, build, attachReport, note, keepTicketPrivate);
+            Utility.log(logger, Messages.MantisIssueRegister_Queued());
+            return true;
+        }
         try {
             no = site.addIssue(issue);
             Utility.log(logger, "file a ticket #" + no + "(" + getIssueURL(site, no) + ")");
@@ -89,10 +164,113 @@ public final class MantisIssueRegister extends Recorder {
             return true;
         }
         
+        if (attachReport) {
+            attachReport(build, site, no, logger);
+        }
+
         build.getActions().add(new MantisRegisterAction(site, no));
+        if (suppressDuplicates) {
+            rememberFiledIssue(build, site, no);
+        }
         
         return true;
     }
+
+    /**
+     * Adds a note to the open issue filed by a previous build of the job,
+     * if any. Returns false if a new issue should be filed.
+     */
+    private boolean addNoteToFiledIssue(AbstractBuild<?, ?> build, MantisSite site, PrintStream logger) {
+        String key = getIndexKey(build, site);
+        Integer no = FILED_ISSUES.get(key);
+        if (no == null) {
+            no = findFiledIssue(build, site);
+            if (no == null) {
+                return false;
+            }
+            FILED_ISSUES.put(key, no);
+        }
+
+        try {
+            // the cached status may be outdated
+            MantisIssue filed = site.fetchIssue(no);
+            if (filed.isResolved()) {
+                FILED_ISSUES.remove(key, no);
+                return false;
+            }
+        } catch (MantisHandlingException e) {
+            if (!e.isTransportFailure()) {
+                // the issue has been deleted or is not accessible
+                LOGGER.log(Level.FINE, "failed to get ticket #" + no, e);
+                FILED_ISSUES.remove(key, no);
+                return false;
+            }
+            // status unknown; a note to the open issue is better than a duplicate
+        }
+
+        try {
+            String text = failedAgainText(build);
+            if (MantisProjectProperty.DESCRIPTOR.isUseOutbox()) {
+                MantisOutbox.get().addNote(site, no, text, keepTicketPrivate);
+            } else {
+                site.updateIssue(no, text, keepTicketPrivate);
+            }
+        } catch (MantisHandlingException e) {
+            LOGGER.log(Level.FINE, "failed to add a note to ticket #" + no, e);
+            FILED_ISSUES.remove(key, no);
+            return false;
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "failed to queue a note to ticket #" + no, e);
+            return false;
+        }
+
+        Utility.log(logger, Messages.MantisIssueRegister_AddedNoteToFiledIssue(no, getIssueURL(site, no)));
+        build.getActions().add(new MantisRegisterAction(site, no));
+        return true;
+    }
+
+    /**
+     * Searches previous builds for the issue filed for the job.
+     */
+    private Integer findFiledIssue(AbstractBuild<?, ?> build, MantisSite site) {
+        String url = site.getUrl().toExternalForm();
+        AbstractBuild<?, ?> b = build.getPreviousBuild();
+        for (int i = 0; b != null && i < MAX_BUILDS_TO_SEARCH; i++, b = b.getPreviousBuild()) {
+            MantisRegisterAction action = b.getAction(MantisRegisterAction.class);
+            if (action != null && action.getSite() != null
+                    && url.equals(action.getSite().getUrl().toExternalForm())) {
+                return action.getIssueNo();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Records the issue filed for the job of the build.
+     */
+    static void rememberFiledIssue(Run<?, ?> build, MantisSite site, int no) {
+        FILED_ISSUES.put(getIndexKey(build, site), no);
+    }
+
+    /**
+     * Returns the issue known to be filed for the job, or null.
+     */
+    static Integer getFiledIssue(String jobFullName, MantisSite site) {
+        return FILED_ISSUES.get(getIndexKey(jobFullName, site));
+    }
+
+    private static String getIndexKey(Run<?, ?> build, MantisSite site) {
+        return getIndexKey(build.getParent().getFullName(), site);
+    }
+
+    private static String getIndexKey(String jobFullName, MantisSite site) {
+        return jobFullName + '@' + site.getUrl().toExternalForm();
+    }
+
+    private static String failedAgainText(Run<?, ?> build) {
+        return Messages.MantisIssueRegister_FailedAgain(summary(build),
+                Util.fixNull(Hudson.getInstance().getRootUrl()) + build.getUrl());
+    }
     
     private boolean canProcess(AbstractBuild<?, ?> build) {
         Result result = build.getResult();
@@ -121,7 +299,12 @@ public final class MantisIssueRegister extends Recorder {
         MantisProject project = new MantisProject(projectId);
         MantisCategory category = new MantisCategory(categoryName);
         String summary = summary(build);
-        String description = new JellyScriptContent().getContent(build, build.getResult());
+        String description;
+        if (attachReport) {
+            description = createReport(build);
+        } else {
+            description = new JellyScriptContent().getContent(build, build.getResult());
+        }
         MantisViewState viewState;
         if (isKeepTicketPrivate()) {
             viewState = MantisViewState.PUBLIC;
@@ -131,7 +314,58 @@ public final class MantisIssueRegister extends Recorder {
         return new MantisIssue(project, category, summary, description, viewState);
     }
     
-    private String summary(AbstractBuild<?, ?> build) {
+    /**
+     * Writes the full description and the end of the console log, without
+     * console notes, to the compressed report in the build directory, and
+     * returns the shortened description.
+     */
+    private String createReport(AbstractBuild<?, ?> build) throws IOException, InterruptedException {
+        File report = new File(build.getRootDir(), REPORT_FILE_NAME);
+        OutputStream out = new GZIPOutputStream(new FileOutputStream(report));
+        Writer writer = new OutputStreamWriter(out, "UTF-8");
+        String description;
+        try {
+            description = new JellyScriptContent().getContent(build, build.getResult(), writer,
+                    ATTACHED_DESCRIPTION_LENGTH);
+            writer.write("\n\n");
+            AnnotatedLargeText<?> log = build.getLogText();
+            long start = Math.max(0, log.length() - MAX_REPORT_LOG_SIZE);
+            if (start > 0) {
+                writer.write(Messages.MantisIssueRegister_LogTruncated(start));
+                writer.write("\n");
+            }
+            writer.flush();
+            // strips the console notes
+            log.writeLogTo(start, out);
+        } finally {
+            writer.close();
+        }
+        if (report.length() > MAX_ATTACHMENT_SIZE) {
+            return description + "\n\n" + Messages.MantisIssueRegister_ReportNotAttached(REPORT_FILE_NAME);
+        }
+        return description + "\n\n" + Messages.MantisIssueRegister_ReportAttached(REPORT_FILE_NAME);
+    }
+
+    private void attachReport(AbstractBuild<?, ?> build, MantisSite site, int no, PrintStream logger) {
+        File report = new File(build.getRootDir(), REPORT_FILE_NAME);
+        if (!report.exists()) {
+            return;
+        }
+        if (report.length() > MAX_ATTACHMENT_SIZE) {
+            Utility.log(logger, Messages.MantisIssueRegister_ReportTooLarge(no, report.length(), MAX_ATTACHMENT_SIZE));
+            return;
+        }
+        try {
+            site.addAttachment(no, REPORT_FILE_NAME, "application/x-gzip", report);
+            Utility.log(logger, Messages.MantisIssueRegister_AttachedReport(no));
+        } catch (MantisHandlingException e) {
+            // the issue itself has been filed
+            Utility.log(logger, Messages.MantisIssueRegister_FailedToAttachReport(no, e.getMessage()));
+            LOGGER.log(Level.WARNING, Messages.MantisIssueRegister_FailedToAttachReport(no, e.getMessage()), e);
+        }
+    }
+
+    private static String summary(Run<?, ?> build) {
         StringBuilder summary = new StringBuilder();
         summary.append(build.getParent().getName());
         summary.append(" build No." + build.getNumber());
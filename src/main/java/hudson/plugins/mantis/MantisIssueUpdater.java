@@ -2,10 +2,14 @@ package hudson.plugins.mantis;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import org.kohsuke.stapler.DataBoundConstructor;
 import org.kohsuke.stapler.StaplerRequest;
 
+import com.google.common.base.Optional;
+
 import hudson.Extension;
 import hudson.FilePath;
 import hudson.Launcher;
@@ -58,17 +62,14 @@ public final class MantisIssueUpdater extends Recorder implements SimpleBuildSte
 
         if (run instanceof MatrixRun) {
             return;
-        } else {
-            try {
-                @SuppressWarnings("unchecked")
-                List<ChangeLogSet<? extends ChangeLogSet.Entry>> changeSets = (List<ChangeLogSet<? extends Entry>>) run
-                        .getClass().getMethod("getChangeSets").invoke(run);
-                final Updater updater = new Updater(changeSets, isKeepNotePrivate(), isRecordChangelog());
-                updater.perform(run, listener);
-            } catch (Exception e) {
-                throw new IOException(e);
-            }
         }
+        final Optional<List<ChangeLogSet<? extends Entry>>> changeSets = RunScmChangeExtractor.findChanges(run);
+        if (!changeSets.isPresent()) {
+            // issues carried over from previous builds are still updated
+            LOGGER.log(Level.FINE, "{0} does not record SCM changes", run.getClass().getName());
+        }
+        final Updater updater = new Updater(changeSets.orNull(), isKeepNotePrivate(), isRecordChangelog());
+        updater.perform(run, listener);
     }
 
     @Extension
@@ -98,4 +99,6 @@ public final class MantisIssueUpdater extends Recorder implements SimpleBuildSte
             return req.bindJSON(MantisIssueUpdater.class, formData);
         }
     }
+
+    private static final Logger LOGGER = Logger.getLogger(MantisIssueUpdater.class.getName());
 }
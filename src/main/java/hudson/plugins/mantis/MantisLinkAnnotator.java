@@ -35,6 +35,9 @@ public final class MantisLinkAnnotator extends ChangeLogAnnotator {
         final String url = mpp.getSite().getUrl().toExternalForm();
 
         final Pattern pattern = findRegexPattern(action, mpp);
+        if (pattern.pattern().equals(mpp.getRegexpPattern().pattern()) && !mpp.mayContainIssueId(text.getText())) {
+            return;
+        }
 
         for (final SubText st : text.findTokens(pattern)) {
             // retrieve id from changelog
@@ -46,6 +49,16 @@ public final class MantisLinkAnnotator extends ChangeLogAnnotator {
                 continue;
             }
 
+            // add hyperlink to Mantis
+            String newUrl = Util.encode(url + "view.php?id=$1");
+
+            // summaries not saved in the build are loaded by the browser
+            if (action == null && MantisProjectProperty.DESCRIPTOR.isAsyncLinkTooltips()) {
+                st.surroundWith(String.format("<a href='%s' data-mantis-issue='%d' data-mantis-job='%s'>", newUrl, id,
+                        Utility.escape(build.getParent().getUrl())), "</a>");
+                continue;
+            }
+
             // get the issue from saved one or Mantis
             MantisIssue issue;
             if (action != null) {
@@ -54,8 +67,6 @@ public final class MantisLinkAnnotator extends ChangeLogAnnotator {
                 issue = getIssue(build, id);
             }
 
-            // add hyperlink to Mantis
-            String newUrl = Util.encode(url + "view.php?id=$1");
             if (issue == null) {
                 LOGGER.log(Level.WARNING, Messages.MantisLinkAnnotator_FailedToGetMantisIssue(id));
                 st.surroundWith(String.format("<a href='%s'>", newUrl), "</a>");
@@ -0,0 +1,177 @@
+package hudson.plugins.mantis;
+
+import hudson.plugins.mantis.model.MantisCategory;
+import hudson.plugins.mantis.model.MantisProject;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * In-memory cache of the project tree and the categories of one site, used
+ * to fill the job configuration form.
+ *
+ * Entries older than {@link #REFRESH_AFTER} are returned as they are and
+ * reloaded in the background. Entries older than {@link #TTL} are reloaded
+ * by the caller. If Mantis cannot be reached, the cached entry is returned
+ * regardless of its age.
+ */
+public final class MantisMetadataCache {
+
+    private static final String PREFIX = MantisMetadataCache.class.getName();
+
+    private static final long REFRESH_AFTER =
+            TimeUnit.SECONDS.toMillis(Integer.getInteger(PREFIX + ".refreshAfter", 900));
+
+    private static final long TTL = TimeUnit.SECONDS.toMillis(Integer.getInteger(PREFIX + ".ttl", 86400));
+
+    private static final String PROJECTS = "projects";
+
+    private static final String CATEGORIES = "categories:";
+
+    /**
+     * executor reloading entries, shared by all sites.
+     */
+    private static final Executor REFRESHER;
+
+    static {
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(),
+                new NamingThreadFactory(new DaemonThreadFactory(), "Mantis metadata refresher"));
+        executor.allowCoreThreadTimeOut(true);
+        REFRESHER = executor;
+    }
+
+    private final ConcurrentMap<String, Entry<?>> entries = new ConcurrentHashMap<String, Entry<?>>();
+
+    private final long refreshAfter;
+
+    private final long ttl;
+
+    private final Executor refresher;
+
+    public MantisMetadataCache() {
+        this(REFRESH_AFTER, TTL, REFRESHER);
+    }
+
+    MantisMetadataCache(final long refreshAfter, final long ttl, final Executor refresher) {
+        this.refreshAfter = refreshAfter;
+        this.ttl = ttl;
+        this.refresher = refresher;
+    }
+
+    public List<MantisProject> getProjects(final MantisSite site) throws MantisHandlingException {
+        return get(PROJECTS, new Loader<List<MantisProject>>() {
+            public List<MantisProject> load() throws MantisHandlingException {
+                return site.getProjects();
+            }
+        });
+    }
+
+    public List<MantisCategory> getCategories(final MantisSite site, final int projectId)
+            throws MantisHandlingException {
+        return get(CATEGORIES + projectId, new Loader<List<MantisCategory>>() {
+            public List<MantisCategory> load() throws MantisHandlingException {
+                return site.getCategories(projectId);
+            }
+        });
+    }
+
+    /**
+     * Removes all entries, so that they are reloaded on the next request.
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    @SuppressWarnings("unchecked")
+    <T> T get(final String key, final Loader<T> loader) throws MantisHandlingException {
+        final Entry<T> entry = (Entry<T>) entries.get(key);
+        final long now = System.currentTimeMillis();
+        if (entry != null) {
+            final long age = now - entry.loadedAt;
+            if (age < refreshAfter) {
+                return entry.value;
+            }
+            if (age < ttl) {
+                refresh(key, entry, loader);
+                return entry.value;
+            }
+        }
+
+        try {
+            return load(key, loader);
+        } catch (final MantisHandlingException e) {
+            if (entry == null || !e.isTransportFailure()) {
+                throw e;
+            }
+            LOGGER.log(Level.FINE, "Using expired {0}: {1}", new Object[] { key, e.getMessage() });
+            return entry.value;
+        }
+    }
+
+    private <T> T load(final String key, final Loader<T> loader) throws MantisHandlingException {
+        final T value = loader.load();
+        entries.put(key, new Entry<T>(value, System.currentTimeMillis()));
+        return value;
+    }
+
+    private <T> void refresh(final String key, final Entry<T> entry, final Loader<T> loader) {
+        if (!entry.refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            refresher.execute(new Runnable() {
+                public void run() {
+                    try {
+                        load(key, loader);
+                    } catch (final MantisHandlingException e) {
+                        LOGGER.log(Level.FINE, "Failed to refresh " + key, e);
+                    } catch (final RuntimeException e) {
+                        LOGGER.log(Level.WARNING, "Failed to refresh " + key, e);
+                    } finally {
+                        // if it failed, try again on the next request
+                        entry.refreshing.set(false);
+                    }
+                }
+            });
+        } catch (final RejectedExecutionException e) {
+            LOGGER.log(Level.FINE, "Failed to schedule the refresh of " + key, e);
+            entry.refreshing.set(false);
+        }
+    }
+
+    interface Loader<T> {
+
+        T load() throws MantisHandlingException;
+    }
+
+    private static final class Entry<T> {
+
+        private final T value;
+
+        private final long loadedAt;
+
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+
+        private Entry(final T value, final long loadedAt) {
+            this.value = value;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    private static final Logger LOGGER = Logger.getLogger(MantisMetadataCache.class.getName());
+}
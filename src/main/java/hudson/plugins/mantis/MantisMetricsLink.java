@@ -0,0 +1,60 @@
+package hudson.plugins.mantis;
+
+import hudson.Extension;
+import hudson.model.ManagementLink;
+import hudson.plugins.mantis.scripts.JellyScriptContent;
+import hudson.plugins.mantis.soap.OperationMetrics;
+
+/**
+ * Page under "Manage Jenkins" showing the metrics of the Mantis sites.
+ */
+@Extension
+public final class MantisMetricsLink extends ManagementLink {
+
+    @Override
+    public String getIconFileName() {
+        return "/plugin/mantis/mantis.png";
+    }
+
+    @Override
+    public String getUrlName() {
+        return "mantis-metrics";
+    }
+
+    public String getDisplayName() {
+        return Messages.MantisMetricsLink_DisplayName();
+    }
+
+    @Override
+    public String getDescription() {
+        return Messages.MantisMetricsLink_Description();
+    }
+
+    public MantisSite[] getSites() {
+        return MantisProjectProperty.DESCRIPTOR.getSites();
+    }
+
+    public String[] getBucketLabels() {
+        return OperationMetrics.getBucketLabels();
+    }
+
+    public int getOutboxSize() {
+        return MantisOutbox.get().size();
+    }
+
+    public long getTemplateCacheHitCount() {
+        return JellyScriptContent.getCacheHitCount();
+    }
+
+    public long getTemplateCacheMissCount() {
+        return JellyScriptContent.getCacheMissCount();
+    }
+
+    public double getAverageRenderTime() {
+        return JellyScriptContent.getAverageRenderTime();
+    }
+
+    public String format(final double millis) {
+        return String.format("%.1f", millis);
+    }
+}
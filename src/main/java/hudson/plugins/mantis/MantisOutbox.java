@@ -0,0 +1,346 @@
+package hudson.plugins.mantis;
+
+import hudson.XmlFile;
+import hudson.model.Hudson;
+import hudson.model.Job;
+import hudson.model.Run;
+import hudson.plugins.mantis.model.MantisIssue;
+import hudson.util.XStream2;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Persistent queue of writes to Mantis.
+ *
+ * Each pending write is saved as one file under
+ * $JENKINS_HOME/mantis/outbox, so builds do not wait for Mantis and writes
+ * survive Mantis outages and restarts. {@link MantisOutboxWorker} sends
+ * them in the order they were queued.
+ */
+public final class MantisOutbox {
+
+    private static final String PREFIX = MantisOutbox.class.getName();
+
+    /**
+     * a write is given up after this number of failed attempts.
+     */
+    private static final int MAX_ATTEMPTS = Integer.getInteger(PREFIX + ".maxAttempts", 20);
+
+    /**
+     * delay before the first retry in seconds, doubled on each failure.
+     */
+    private static final long INITIAL_BACKOFF = Long.getLong(PREFIX + ".initialBackoff", 30) * 1000;
+
+    /**
+     * max delay between retries in seconds.
+     */
+    private static final long MAX_BACKOFF = Long.getLong(PREFIX + ".maxBackoff", 60 * 60) * 1000;
+
+    /**
+     * max number of writes sent to one site per run of the worker.
+     */
+    private static final int BATCH_SIZE = Integer.getInteger(PREFIX + ".batchSize", 50);
+
+    private static final XStream2 XSTREAM = new XStream2();
+
+    private static final MantisOutbox INSTANCE = new MantisOutbox();
+
+    private static final FileFilter XML_FILES = new FileFilter() {
+        public boolean accept(final File file) {
+            return file.isFile() && file.getName().endsWith(".xml");
+        }
+    };
+
+    static {
+        XSTREAM.alias("mantisNote", PendingNote.class);
+        XSTREAM.alias("mantisIssue", PendingIssue.class);
+    }
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private MantisOutbox() {
+    }
+
+    public static MantisOutbox get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Queues a note to the issue.
+     */
+    public void addNote(final MantisSite site, final int id, final String text, final boolean keepNotePrivate)
+            throws IOException {
+        enqueue(new PendingNote(site, id, text, keepNotePrivate));
+    }
+
+    /**
+     * Queues a new issue filed for the build. When it has been filed, a
+     * {@link MantisRegisterAction} is added to the build.
+     *
+     * If note is not null and an issue has been filed for the job by the
+     * time the write is sent, e.g. by an earlier queued build, the note is
+     * added to that issue instead of filing a duplicate.
+     */
+    public void addIssue(final MantisSite site, final MantisIssue issue, final Run<?, ?> build,
+            final boolean attachReport, final String note, final boolean keepNotePrivate) throws IOException {
+        enqueue(new PendingIssue(site, issue, build, attachReport, note, keepNotePrivate));
+    }
+
+    /**
+     * Returns the number of pending writes.
+     */
+    public int size() {
+        final File[] files = getDirectory().listFiles(XML_FILES);
+        return files != null ? files.length : 0;
+    }
+
+    File getDirectory() {
+        return new File(Hudson.getInstance().getRootDir(), "mantis/outbox");
+    }
+
+    void enqueue(final PendingWrite write) throws IOException {
+        // file names sort in the order of queueing
+        final String name = String.format("%013d-%06d.xml", System.currentTimeMillis(),
+                sequence.incrementAndGet() % 1000000);
+        new XmlFile(XSTREAM, new File(getDirectory(), name)).write(write);
+    }
+
+    /**
+     * Sends the writes which are due, grouped by site. After a transport
+     * failure, the remaining writes to that site wait for the next run. A
+     * write rejected by Mantis only delays itself.
+     */
+    void drain() {
+        final File[] files = getDirectory().listFiles(XML_FILES);
+        if (files == null || files.length == 0) {
+            return;
+        }
+        Arrays.sort(files);
+
+        final long now = System.currentTimeMillis();
+        final Map<String, List<XmlFile>> bySite = new LinkedHashMap<String, List<XmlFile>>();
+        final Map<XmlFile, PendingWrite> writes = new LinkedHashMap<XmlFile, PendingWrite>();
+        for (final File file : files) {
+            final XmlFile xml = new XmlFile(XSTREAM, file);
+            PendingWrite write;
+            try {
+                write = (PendingWrite) xml.read();
+            } catch (final IOException e) {
+                LOGGER.log(Level.WARNING, "Failed to read " + file + ", discarding it.", e);
+                discard(xml);
+                continue;
+            }
+            if (write.nextAttempt > now) {
+                continue;
+            }
+            List<XmlFile> list = bySite.get(write.siteName);
+            if (list == null) {
+                list = new ArrayList<XmlFile>();
+                bySite.put(write.siteName, list);
+            }
+            if (list.size() < BATCH_SIZE) {
+                list.add(xml);
+                writes.put(xml, write);
+            }
+        }
+
+        for (final Map.Entry<String, List<XmlFile>> entry : bySite.entrySet()) {
+            final MantisSite site = findSite(entry.getKey());
+            for (final XmlFile xml : entry.getValue()) {
+                final PendingWrite write = writes.get(xml);
+                if (site == null) {
+                    failed(xml, write, "Mantis site " + entry.getKey() + " is not configured.");
+                    continue;
+                }
+                try {
+                    write.send(site);
+                    discard(xml);
+                } catch (final MantisHandlingException e) {
+                    failed(xml, write, e.getMessage());
+                    if (e.isTransportFailure()) {
+                        // Mantis is not reachable, the other writes would fail too
+                        break;
+                    }
+                    // rejected, e.g. the issue was deleted; retried with its own backoff
+                }
+            }
+        }
+    }
+
+    private void failed(final XmlFile xml, final PendingWrite write, final String message) {
+        write.attempts++;
+        write.lastError = message;
+        if (write.attempts >= MAX_ATTEMPTS) {
+            LOGGER.log(Level.WARNING, Messages.MantisOutbox_GaveUp(write, write.attempts, message));
+            discard(xml);
+            return;
+        }
+        final long backoff = Math.min(INITIAL_BACKOFF << Math.min(write.attempts - 1, 30), MAX_BACKOFF);
+        write.nextAttempt = System.currentTimeMillis() + backoff;
+        LOGGER.log(Level.FINE, "{0} failed: {1}, retrying in {2} ms", new Object[] { write, message, backoff });
+        try {
+            xml.write(write);
+        } catch (final IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to save " + xml, e);
+        }
+    }
+
+    private void discard(final XmlFile xml) {
+        if (!xml.getFile().delete()) {
+            LOGGER.log(Level.WARNING, "Failed to delete {0}", xml);
+        }
+    }
+
+    private static MantisSite findSite(final String name) {
+        for (final MantisSite site : MantisProjectProperty.DESCRIPTOR.getSites()) {
+            if (site.getName().equals(name)) {
+                return site;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * One pending write.
+     */
+    abstract static class PendingWrite {
+
+        protected final String siteName;
+
+        protected int attempts;
+
+        protected long nextAttempt;
+
+        protected String lastError;
+
+        PendingWrite(final MantisSite site) {
+            this.siteName = site.getName();
+        }
+
+        abstract void send(MantisSite site) throws MantisHandlingException;
+    }
+
+    static final class PendingNote extends PendingWrite {
+
+        private final int id;
+
+        private final String text;
+
+        private final boolean keepNotePrivate;
+
+        PendingNote(final MantisSite site, final int id, final String text, final boolean keepNotePrivate) {
+            super(site);
+            this.id = id;
+            this.text = text;
+            this.keepNotePrivate = keepNotePrivate;
+        }
+
+        @Override
+        void send(final MantisSite site) throws MantisHandlingException {
+            site.updateIssue(id, text, keepNotePrivate);
+        }
+
+        @Override
+        public String toString() {
+            return "note to issue #" + id + " on " + siteName;
+        }
+    }
+
+    static final class PendingIssue extends PendingWrite {
+
+        private final MantisIssue issue;
+
+        private final String jobName;
+
+        private final int buildNumber;
+
+        private final boolean attachReport;
+
+        /**
+         * added to the issue filed for the job instead, if there is one.
+         */
+        private final String note;
+
+        private final boolean keepNotePrivate;
+
+        PendingIssue(final MantisSite site, final MantisIssue issue, final Run<?, ?> build,
+                final boolean attachReport, final String note, final boolean keepNotePrivate) {
+            super(site);
+            this.issue = issue;
+            this.jobName = build.getParent().getFullName();
+            this.buildNumber = build.getNumber();
+            this.attachReport = attachReport;
+            this.note = note;
+            this.keepNotePrivate = keepNotePrivate;
+        }
+
+        @Override
+        void send(final MantisSite site) throws MantisHandlingException {
+            final Integer filed = note != null ? MantisIssueRegister.getFiledIssue(jobName, site) : null;
+            if (filed != null) {
+                // filed while this write was queued, e.g. for an earlier build during an outage
+                site.updateIssue(filed, note, keepNotePrivate);
+                addAction(site, filed);
+                return;
+            }
+            final int no = site.addIssue(issue);
+            // the issue has been filed, so nothing below may fail the write
+            final Run<?, ?> build = addAction(site, no);
+            if (build == null) {
+                return;
+            }
+            MantisIssueRegister.rememberFiledIssue(build, site, no);
+            if (attachReport) {
+                final File report = new File(build.getRootDir(), MantisIssueRegister.REPORT_FILE_NAME);
+                if (report.length() > MantisIssueRegister.MAX_ATTACHMENT_SIZE) {
+                    LOGGER.log(Level.WARNING, Messages.MantisIssueRegister_ReportTooLarge(no, report.length(),
+                            MantisIssueRegister.MAX_ATTACHMENT_SIZE));
+                } else if (report.exists()) {
+                    try {
+                        site.addAttachment(no, MantisIssueRegister.REPORT_FILE_NAME, "application/x-gzip", report);
+                    } catch (final MantisHandlingException e) {
+                        LOGGER.log(Level.WARNING,
+                                Messages.MantisIssueRegister_FailedToAttachReport(no, e.getMessage()), e);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Adds a {@link MantisRegisterAction} to the build, and returns the
+         * build or null if it no longer exists.
+         */
+        private Run<?, ?> addAction(final MantisSite site, final int no) {
+            final Job<?, ?> job = Hudson.getInstance().getItemByFullName(jobName, Job.class);
+            final Run<?, ?> build = job != null ? job.getBuildByNumber(buildNumber) : null;
+            if (build == null) {
+                LOGGER.log(Level.INFO, "Sent issue #{0} for {1} #{2}, which no longer exists.",
+                        new Object[] { no, jobName, buildNumber });
+                return null;
+            }
+            try {
+                build.addAction(new MantisRegisterAction(site, no));
+                build.save();
+            } catch (final IOException e) {
+                LOGGER.log(Level.WARNING, "Failed to save " + build, e);
+            }
+            return build;
+        }
+
+        @Override
+        public String toString() {
+            return "issue for " + jobName + " #" + buildNumber + " on " + siteName;
+        }
+    }
+
+    private static final Logger LOGGER = Logger.getLogger(MantisOutbox.class.getName());
+}
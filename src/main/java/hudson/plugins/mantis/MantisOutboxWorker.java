@@ -0,0 +1,34 @@
+package hudson.plugins.mantis;
+
+import hudson.Extension;
+import hudson.model.AsyncPeriodicWork;
+import hudson.model.TaskListener;
+import java.io.IOException;
+
+/**
+ * Sends the writes queued in {@link MantisOutbox}.
+ */
+@Extension
+public final class MantisOutboxWorker extends AsyncPeriodicWork {
+
+    /**
+     * interval between runs in seconds.
+     */
+    private static final long RECURRENCE_PERIOD =
+            Long.getLong(MantisOutboxWorker.class.getName() + ".recurrencePeriod", 15) * 1000;
+
+    public MantisOutboxWorker() {
+        super("Mantis outbox");
+    }
+
+    @Override
+    public long getRecurrencePeriod() {
+        return RECURRENCE_PERIOD;
+    }
+
+    @Override
+    protected void execute(final TaskListener listener) throws IOException, InterruptedException {
+        // also drains writes queued before the outbox was turned off
+        MantisOutbox.get().drain();
+    }
+}
@@ -0,0 +1,19 @@
+package hudson.plugins.mantis;
+
+import hudson.Extension;
+import hudson.model.PageDecorator;
+
+/**
+ * Adds the script loading summaries of Mantis links to pages.
+ */
+@Extension
+public final class MantisPageDecorator extends PageDecorator {
+
+    public MantisPageDecorator() {
+        super(MantisPageDecorator.class);
+    }
+
+    public boolean isAsyncLinkTooltips() {
+        return MantisProjectProperty.DESCRIPTOR.isAsyncLinkTooltips();
+    }
+}
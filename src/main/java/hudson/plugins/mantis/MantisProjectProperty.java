@@ -4,7 +4,11 @@ import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import java.util.regex.Pattern;
 
 import javax.servlet.ServletException;
@@ -14,18 +18,23 @@ import org.kohsuke.stapler.AncestorInPath;
 import org.kohsuke.stapler.DataBoundConstructor;
 import org.kohsuke.stapler.QueryParameter;
 import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
 
 import hudson.Extension;
 import hudson.Util;
 import hudson.model.AbstractProject;
 import hudson.model.Hudson;
+import hudson.model.Item;
 import hudson.model.Job;
 import hudson.model.JobProperty;
 import hudson.model.JobPropertyDescriptor;
 import hudson.model.Run;
 import hudson.plugins.mantis.MantisSite.MantisVersion;
 import hudson.plugins.mantis.model.MantisCategory;
+import hudson.plugins.mantis.model.MantisIssue;
 import hudson.plugins.mantis.model.MantisProject;
+import hudson.plugins.mantis.soap.MantisMetrics;
+import hudson.plugins.mantis.soap.MantisSessionPool;
 import hudson.util.CopyOnWriteList;
 import hudson.util.FormValidation;
 import hudson.util.ListBoxModel;
@@ -42,12 +51,18 @@ public final class MantisProjectProperty extends JobProperty<Job<?, ?>> {
     public static final DescriptorImpl DESCRIPTOR = new DescriptorImpl();
     private static final String ISSUE_ID_STRING = "%ID%";
     private static final String DEFAULT_PATTERN = "issue #?" + ISSUE_ID_STRING;
+    // "#" of the default pattern is optional
+    private static final String DEFAULT_LITERAL_PREFIX = "issue ";
     private final String siteName;
     private final int projectId;
     private final String category;
     private final String pattern;
     private final String regex;
     private Pattern regexpPattern;
+    /**
+     * fixed text preceding issue ids, or null if unknown.
+     */
+    private transient String literalPrefix;
     private final boolean linkEnabled;
 
     public static MantisProjectProperty get(Run<?, ?> build) {
@@ -73,12 +88,21 @@ public final class MantisProjectProperty extends JobProperty<Job<?, ?>> {
         this.category = Util.fixEmptyAndTrim(category);
         this.pattern = Util.fixEmptyAndTrim(pattern);
         this.regex = Util.fixEmptyAndTrim(regex);
-        if (this.regex != null) {
-            this.regexpPattern = Pattern.compile(this.regex);
+        this.regexpPattern = createRegexpPattern();
+        this.literalPrefix = createLiteralPrefix();
+        this.linkEnabled = linkEnabled;
+    }
+
+    protected Object readResolve() {
+        // If project configuration has not saved after upgrading to 0.8.0,
+        // regexpPattern is null.
+        if (regexpPattern == null) {
+            regexpPattern = createRegexpPattern();
         } else {
-            this.regexpPattern = createRegexp(this.pattern);
+            regexpPattern = PatternCache.intern(regexpPattern);
         }
-        this.linkEnabled = linkEnabled;
+        literalPrefix = createLiteralPrefix();
+        return this;
     }
 
     public String getSiteName() {
@@ -102,14 +126,24 @@ public final class MantisProjectProperty extends JobProperty<Job<?, ?>> {
     }
 
     public Pattern getRegexpPattern() {
-        // If project configuration has not saved after upgrading to 0.8.0,
-        // return default issue id pattern.
         if (regexpPattern == null) {
-            return createRegexp(pattern);
+            regexpPattern = createRegexpPattern();
         }
         return regexpPattern;
     }
 
+    /**
+     * Returns false if the text cannot contain any issue id because the fixed
+     * text preceding ids is missing. Cheaper than running the regular
+     * expression, which is needed only when this returns true.
+     */
+    public boolean mayContainIssueId(final String text) {
+        if (literalPrefix == null || text == null) {
+            return true;
+        }
+        return text.indexOf(literalPrefix) != -1;
+    }
+
     public boolean isLinkEnabled() {
         return linkEnabled;
     }
@@ -135,7 +169,29 @@ public final class MantisProjectProperty extends JobProperty<Job<?, ?>> {
         return null;
     }
 
-    private Pattern createRegexp(final String p) {
+    private Pattern createRegexpPattern() {
+        if (regex != null) {
+            return PatternCache.compile(regex);
+        }
+        return PatternCache.compile(createRegexp(pattern));
+    }
+
+    private String createLiteralPrefix() {
+        // a custom regular expression has no known prefix
+        if (regex != null) {
+            return null;
+        }
+        if (pattern == null) {
+            return DEFAULT_LITERAL_PREFIX;
+        }
+        final int index = pattern.indexOf(ISSUE_ID_STRING);
+        if (index <= 0) {
+            return null;
+        }
+        return pattern.substring(0, index);
+    }
+
+    private String createRegexp(final String p) {
         final StringBuffer buf = new StringBuffer();
         buf.append("(?<=");
         if (p != null) {
@@ -144,14 +200,30 @@ public final class MantisProjectProperty extends JobProperty<Job<?, ?>> {
             buf.append(DEFAULT_PATTERN);
         }
         buf.append(')');
-        final String pt = buf.toString().replace(ISSUE_ID_STRING, ")(\\d+)(?=");
-        return Pattern.compile(pt);
+        return buf.toString().replace(ISSUE_ID_STRING, ")(\\d+)(?=");
     }
 
     public static final class DescriptorImpl extends JobPropertyDescriptor {
 
+        /**
+         * max number of issues looked up by one {@link #doIssueSummaries} request.
+         */
+        private static final int MAX_SUMMARIES = 100;
+
         private final CopyOnWriteList<MantisSite> sites = new CopyOnWriteList<MantisSite>();
 
+        /**
+         * if true, changelog links are rendered without summaries, which are
+         * loaded by the browser afterwards.
+         */
+        private boolean asyncLinkTooltips;
+
+        /**
+         * if true, builds queue their writes to Mantis in {@link MantisOutbox}
+         * instead of sending them.
+         */
+        private boolean useOutbox;
+
         public DescriptorImpl() {
             super(MantisProjectProperty.class);
             load();
@@ -176,6 +248,26 @@ public final class MantisProjectProperty extends JobProperty<Job<?, ?>> {
             sites.add(site);
         }
 
+        public boolean isAsyncLinkTooltips() {
+            return asyncLinkTooltips;
+        }
+
+        void setAsyncLinkTooltips(boolean asyncLinkTooltips) {
+            this.asyncLinkTooltips = asyncLinkTooltips;
+        }
+
+        public boolean isUseOutbox() {
+            return useOutbox;
+        }
+
+        void setUseOutbox(boolean useOutbox) {
+            this.useOutbox = useOutbox;
+        }
+
+        public int getOutboxSize() {
+            return MantisOutbox.get().size();
+        }
+
         public MantisVersion[] getMantisVersions() {
             return MantisSite.MantisVersion.values();
         }
@@ -192,7 +284,15 @@ public final class MantisProjectProperty extends JobProperty<Job<?, ?>> {
         @Override
         public boolean configure(final StaplerRequest req, final JSONObject formData) {
             sites.replaceBy(req.bindParametersToList(MantisSite.class, "m."));
+            asyncLinkTooltips = formData.optBoolean("asyncLinkTooltips");
+            useOutbox = formData.optBoolean("useOutbox");
             save();
+            MantisSessionPool.invalidateAll();
+            final List<String> urls = new ArrayList<String>();
+            for (final MantisSite site : sites) {
+                urls.add(site.getUrl().toExternalForm());
+            }
+            MantisMetrics.retain(urls);
             return true;
         }
 
@@ -204,24 +304,27 @@ public final class MantisProjectProperty extends JobProperty<Job<?, ?>> {
             return m;
         }
 
+        private MantisSite findSite(final String siteName) {
+            for (final MantisSite site : sites) {
+                if (site.getName().equals(siteName)) {
+                    return site;
+                }
+            }
+            return null;
+        }
+
         public ListBoxModel doFillProjectIdItems(@QueryParameter String siteName) {
             ListBoxModel model = new ListBoxModel();
             model.add("-", String.valueOf(MantisProject.NONE));
 
-            MantisSite site = null;
-            for (final MantisSite s : sites) {
-                if (s.getName().equals(siteName)) {
-                    site = s;
-                    break;
-                }
-            }
+            final MantisSite site = findSite(siteName);
             if (site == null) {
                 return model;
             }
 
             List<MantisProject> projects;
             try {
-                projects = site.getProjects();
+                projects = site.getMetadataCache().getProjects(site);
             } catch (MantisHandlingException e) {
                 return model;
             }
@@ -271,20 +374,14 @@ public final class MantisProjectProperty extends JobProperty<Job<?, ?>> {
                 return model;
             }
 
-            MantisSite site = null;
-            for (final MantisSite s : sites) {
-                if (s.getName().equals(siteName)) {
-                    site = s;
-                    break;
-                }
-            }
+            final MantisSite site = findSite(siteName);
             if (site == null) {
                 return model;
             }
 
             List<MantisCategory> categories;
             try {
-                categories = site.getCategories(projectId);
+                categories = site.getMetadataCache().getCategories(site, projectId);
             } catch (MantisHandlingException e) {
                 return model;
             }
@@ -294,6 +391,68 @@ public final class MantisProjectProperty extends JobProperty<Job<?, ?>> {
             return model;
         }
 
+        /**
+         * Discards the cached projects and categories of the site and reloads
+         * the projects. The project list of the form is filled when the page
+         * is loaded, so it shows them after the page is reloaded.
+         */
+        public FormValidation doRefreshMetadata(@AncestorInPath final Job<?, ?> project,
+                @QueryParameter final String siteName) {
+            if (project != null) {
+                project.checkPermission(Job.CONFIGURE);
+            } else {
+                Hudson.getInstance().checkPermission(Hudson.ADMINISTER);
+            }
+
+            final MantisSite site = findSite(siteName);
+            if (site == null) {
+                return FormValidation.ok();
+            }
+            final MantisMetadataCache cache = site.getMetadataCache();
+            cache.clear();
+            try {
+                final List<MantisProject> projects = cache.getProjects(site);
+                return FormValidation.ok(Messages.MantisProjectProperty_MetadataRefreshed(projects.size(),
+                        site.getName()));
+            } catch (final MantisHandlingException e) {
+                return FormValidation.error(Messages.MantisProjectProperty_MetadataRefreshFailed(site.getName(),
+                        e.getMessage()));
+            }
+        }
+
+        /**
+         * Writes summaries of the specified issues as JSON object keyed by id.
+         * Used to fill tooltips of changelog links asynchronously.
+         */
+        public void doIssueSummaries(@AncestorInPath final Job<?, ?> project, @QueryParameter final String ids,
+                final StaplerResponse rsp) throws IOException {
+            final JSONObject summaries = new JSONObject();
+            final MantisSite site = project != null ? MantisSite.get(project) : null;
+            if (site != null && ids != null) {
+                project.checkPermission(Item.READ);
+                final Set<Integer> issueIds = new LinkedHashSet<Integer>();
+                for (final String id : ids.split(",")) {
+                    try {
+                        issueIds.add(Integer.valueOf(id.trim()));
+                    } catch (final NumberFormatException e) {
+                        // skip
+                    }
+                    if (issueIds.size() >= MAX_SUMMARIES) {
+                        break;
+                    }
+                }
+                try {
+                    for (final MantisIssue issue : site.getIssues(issueIds).values()) {
+                        summaries.put(String.valueOf(issue.getId()), issue.getSummary());
+                    }
+                } catch (final MantisHandlingException e) {
+                    LOGGER.log(Level.FINE, "Failed to get Mantis issues " + issueIds, e);
+                }
+            }
+            rsp.setContentType("application/json;charset=UTF-8");
+            rsp.getWriter().print(summaries.toString());
+        }
+
         public FormValidation doCheckRequired(@QueryParameter String value) {
             return FormValidation.validateRequired(value);
         }
@@ -339,4 +498,6 @@ public final class MantisProjectProperty extends JobProperty<Job<?, ?>> {
             return FormValidation.ok();
         }
     }
+
+    private static final Logger LOGGER = Logger.getLogger(MantisProjectProperty.class.getName());
 }
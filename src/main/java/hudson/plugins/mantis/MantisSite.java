@@ -1,11 +1,26 @@
 package hudson.plugins.mantis;
 
+import java.io.File;
+import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import org.apache.commons.io.FileUtils;
 import org.kohsuke.stapler.DataBoundConstructor;
 
 import hudson.Util;
@@ -15,8 +30,14 @@ import hudson.plugins.mantis.model.MantisIssue;
 import hudson.plugins.mantis.model.MantisNote;
 import hudson.plugins.mantis.model.MantisProject;
 import hudson.plugins.mantis.model.MantisViewState;
+import hudson.plugins.mantis.soap.CircuitBreaker;
+import hudson.plugins.mantis.soap.CircuitOpenException;
+import hudson.plugins.mantis.soap.MantisMetrics;
 import hudson.plugins.mantis.soap.MantisSession;
-import hudson.plugins.mantis.soap.MantisSessionFactory;
+import hudson.plugins.mantis.soap.MantisSessionPool;
+import hudson.plugins.mantis.soap.OperationMetrics;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
 import hudson.util.Secret;
 
 /**
@@ -27,6 +48,20 @@ import hudson.util.Secret;
  */
 public final class MantisSite {
 
+    /**
+     * max number of notes added concurrently. 1 means that notes are added
+     * one by one by the build.
+     */
+    private static final int NOTE_CONCURRENCY =
+            Integer.getInteger(MantisSite.class.getName() + ".noteConcurrency", 1);
+
+    /**
+     * operations whose duration depends on the amount of data. They are not
+     * given the timeout derived from the latencies of earlier calls.
+     */
+    private static final Set<String> BULK_OPERATIONS =
+            new HashSet<String>(Arrays.asList("getIssues", "addAttachment"));
+
     /**
      * the root URL of Mantis installation.
      */
@@ -69,6 +104,21 @@ public final class MantisSite {
      */
     private Secret secretBasicPassword;
 
+    /**
+     * executor adding notes, shared by all builds using this site.
+     */
+    private transient ExecutorService noteExecutor;
+
+    /**
+     * issue summaries retrieved from this site.
+     */
+    private transient MantisIssueCache issueCache;
+
+    /**
+     * projects and categories retrieved from this site.
+     */
+    private transient MantisMetadataCache metadataCache;
+
     public static MantisSite get(final Job<?, ?> p) {
         final MantisProjectProperty mpp = p.getProperty(MantisProjectProperty.class);
         if (mpp != null) {
@@ -159,8 +209,7 @@ public final class MantisSite {
     public boolean isConnect() {
         final String urlString = url.toExternalForm();
         try {
-            final MantisSession session = createSession();
-            List<MantisProject> projects = session.getProjects();
+            getProjects();
         } catch (final MantisHandlingException e) {
             LOGGER.log(Level.WARNING, Messages.MantisSite_FailedToConnectToMantis(urlString, e.getMessage()));
             return false;
@@ -171,8 +220,117 @@ public final class MantisSite {
     }
 
     public MantisIssue getIssue(final int id) throws MantisHandlingException {
-        final MantisSession session = createSession();
-        return session.getIssue(id);
+        final MantisIssueCache cache = getIssueCache();
+        final MantisIssueCache.CachedIssue cached = cache.get(id);
+        if (cached != null) {
+            return cached.getIssue();
+        }
+        try {
+            final MantisIssue issue = execute("getIssue", new SessionCallable<MantisIssue>() {
+                public MantisIssue call(final MantisSession session) throws MantisHandlingException {
+                    return session.getIssue(id);
+                }
+            });
+            cache.put(issue);
+            return issue;
+        } catch (final MantisHandlingException e) {
+            // the issue does not exist or is not accessible
+            if (!e.isTransportFailure()) {
+                cache.putMissing(id, e.getMessage());
+                throw e;
+            }
+            // Mantis is not available, an expired summary is better than none
+            final MantisIssue stale = cache.peek(id);
+            if (stale == null) {
+                throw e;
+            }
+            LOGGER.log(Level.FINE, "Using expired summary of issue #{0}: {1}", new Object[] { id, e.getMessage() });
+            return stale;
+        }
+    }
+
+    /**
+     * Retrieves the issue from Mantis instead of the cache, e.g. to check its
+     * current status, and updates the cache.
+     */
+    public MantisIssue fetchIssue(final int id) throws MantisHandlingException {
+        final MantisIssueCache cache = getIssueCache();
+        final MantisIssue stale = cache.peek(id);
+        cache.invalidate(id);
+        try {
+            return getIssue(id);
+        } catch (final MantisHandlingException e) {
+            // keep the summary for links while Mantis is not available
+            if (stale != null && e.isTransportFailure()) {
+                cache.put(stale);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the issues for the specified ids, keyed by id. Issues which
+     * could not be retrieved are not contained in the result.
+     */
+    public Map<Integer, MantisIssue> getIssues(final Collection<Integer> ids) throws MantisHandlingException {
+        final MantisIssueCache cache = getIssueCache();
+        final Map<Integer, MantisIssue> cachedIssues = new HashMap<Integer, MantisIssue>();
+        final List<Integer> uncachedIds = new ArrayList<Integer>();
+        for (final Integer id : ids) {
+            final MantisIssueCache.CachedIssue cached = cache.get(id);
+            if (cached == null) {
+                uncachedIds.add(id);
+            } else if (!cached.isMissing()) {
+                cachedIssues.put(id, cached.getIssue());
+            }
+        }
+
+        if (!uncachedIds.isEmpty()) {
+            try {
+                final Map<Integer, MantisIssue> retrieved =
+                        execute("getIssues", new SessionCallable<Map<Integer, MantisIssue>>() {
+                            public Map<Integer, MantisIssue> call(final MantisSession session)
+                                    throws MantisHandlingException {
+                                return session.getIssues(uncachedIds);
+                            }
+                        });
+                for (final Integer id : uncachedIds) {
+                    final MantisIssue issue = retrieved.get(id);
+                    if (issue != null) {
+                        cache.put(issue);
+                    } else {
+                        // refused by Mantis, so a later getIssue(id) need not ask again
+                        cache.putMissing(id, Messages.MantisSite_IssueNotRetrieved(id));
+                    }
+                }
+                cachedIssues.putAll(retrieved);
+            } catch (final MantisHandlingException e) {
+                if (!e.isTransportFailure()) {
+                    throw e;
+                }
+                // Mantis is not available, fall back to expired summaries
+                boolean stale = false;
+                for (final Integer id : uncachedIds) {
+                    final MantisIssue issue = cache.peek(id);
+                    if (issue != null) {
+                        cachedIssues.put(id, issue);
+                        stale = true;
+                    }
+                }
+                if (!stale) {
+                    throw e;
+                }
+            }
+        }
+
+        final Map<Integer, MantisIssue> issues = new LinkedHashMap<Integer, MantisIssue>();
+        for (final Integer id : ids) {
+            final MantisIssue issue = cachedIssues.get(id);
+            if (issue != null) {
+                issues.put(id, issue);
+            }
+        }
+        return issues;
     }
 
     public void updateIssue(final int id, final String text, final boolean keepNotePrivate)
@@ -184,29 +342,219 @@ public final class MantisSite {
         } else {
             viewState = MantisViewState.PUBLIC;
         }
-        MantisNote note = new MantisNote(text, viewState);
+        final MantisNote note = new MantisNote(text, viewState);
 
-        MantisSession session = createSession();
-        session.addNote(id, note);
+        execute("addNote", new SessionCallable<Void>() {
+            public Void call(final MantisSession session) throws MantisHandlingException {
+                session.addNote(id, note);
+                return null;
+            }
+        });
     }
 
     public List<MantisProject> getProjects() throws MantisHandlingException {
-        final MantisSession session = createSession();
-        return session.getProjects();
+        return execute("getProjects", new SessionCallable<List<MantisProject>>() {
+            public List<MantisProject> call(final MantisSession session) throws MantisHandlingException {
+                return session.getProjects();
+            }
+        });
+    }
+
+    public List<MantisCategory> getCategories(final int projectId) throws MantisHandlingException {
+        return execute("getCategories", new SessionCallable<List<MantisCategory>>() {
+            public List<MantisCategory> call(final MantisSession session) throws MantisHandlingException {
+                return session.getCategories(projectId);
+            }
+        });
+    }
+
+    public int addIssue(final MantisIssue issue) throws MantisHandlingException {
+        return execute("addIssue", new SessionCallable<Integer>() {
+            public Integer call(final MantisSession session) throws MantisHandlingException {
+                return session.addIssue(issue);
+            }
+        });
+    }
+
+    /**
+     * Attaches the file to the issue. The SOAP binding sends the content
+     * inline, so the file is read into memory; callers should pass a
+     * compressed file.
+     */
+    public int addAttachment(final int id, final String name, final String fileType, final File file)
+            throws MantisHandlingException {
+        final byte[] content;
+        try {
+            content = FileUtils.readFileToByteArray(file);
+        } catch (final IOException e) {
+            throw new MantisHandlingException(e);
+        }
+        return execute("addAttachment", new SessionCallable<Integer>() {
+            public Integer call(final MantisSession session) throws MantisHandlingException {
+                return session.addAttachment(id, name, fileType, content);
+            }
+        });
+    }
+
+    /**
+     * Returns the cache of issue summaries of this site.
+     */
+    public synchronized MantisIssueCache getIssueCache() {
+        if (issueCache == null) {
+            issueCache = new MantisIssueCache();
+        }
+        return issueCache;
+    }
+
+    /**
+     * Returns the cache of projects and categories of this site.
+     */
+    public synchronized MantisMetadataCache getMetadataCache() {
+        if (metadataCache == null) {
+            metadataCache = new MantisMetadataCache();
+        }
+        return metadataCache;
+    }
+
+    /**
+     * Returns the executor adding notes concurrently, or null if notes should
+     * be added by the caller.
+     */
+    synchronized ExecutorService getNoteExecutor() {
+        if (noteExecutor == null && NOTE_CONCURRENCY > 1) {
+            noteExecutor = createNoteExecutor(NOTE_CONCURRENCY);
+        }
+        return noteExecutor;
+    }
+
+    /**
+     * Adds notes with the specified concurrency from now on, instead of
+     * the one given by the system property.
+     */
+    synchronized void setNoteConcurrency(final int concurrency) {
+        if (noteExecutor != null) {
+            noteExecutor.shutdown();
+        }
+        noteExecutor = concurrency > 1 ? createNoteExecutor(concurrency) : null;
+    }
+
+    private ExecutorService createNoteExecutor(final int concurrency) {
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(concurrency, concurrency,
+                60L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                new NamingThreadFactory(new DaemonThreadFactory(), "Mantis note updater for " + getName()));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Returns the circuit breaker guarding calls to this site.
+     */
+    public CircuitBreaker getCircuitBreaker() {
+        return getSessionPool().getCircuitBreaker();
+    }
+
+    /**
+     * Returns the state of the circuit breaker for display.
+     */
+    public String getCircuitBreakerStatus() {
+        final CircuitBreaker breaker = getCircuitBreaker();
+        switch (breaker.getState()) {
+        case OPEN:
+            return Messages.MantisSite_CircuitOpen((breaker.getRetryIn() + 999) / 1000, breaker.getLastFailure());
+        case HALF_OPEN:
+            return Messages.MantisSite_CircuitHalfOpen(breaker.getLastFailure());
+        default:
+            return Messages.MantisSite_CircuitClosed();
+        }
     }
 
-    public List<MantisCategory> getCategories(int projectId) throws MantisHandlingException {
-        final MantisSession session = createSession();
-        return session.getCategories(projectId);
+    /**
+     * Returns the timeout in milliseconds for the next call of the operation.
+     */
+    public int getTimeout(final String operation) {
+        if (BULK_OPERATIONS.contains(operation)) {
+            return CircuitBreaker.getMaxTimeout();
+        }
+        return getCircuitBreaker().getTimeout(operation);
+    }
+
+    /**
+     * Returns the metrics of the SOAP operations on this site.
+     */
+    public MantisMetrics getMetrics() {
+        return MantisMetrics.get(url.toExternalForm());
+    }
+
+    /**
+     * Returns the session pool of this site.
+     */
+    public MantisSessionPool getSessionPool() {
+        return MantisSessionPool.get(this);
     }
 
-    public int addIssue(MantisIssue issue) throws MantisHandlingException {
-        final MantisSession session = createSession();
-        return session.addIssue(issue);
+    /**
+     * Runs the callable with a pooled session, recording the metrics of the
+     * operation.
+     */
+    private <T> T execute(final String operation, final SessionCallable<T> callable)
+            throws MantisHandlingException {
+        final MantisSessionPool pool = getSessionPool();
+        final CircuitBreaker breaker = pool.getCircuitBreaker();
+        final OperationMetrics metrics = getMetrics().getOperation(operation);
+        try {
+            breaker.acquire();
+        } catch (final CircuitOpenException e) {
+            metrics.recordRejected();
+            throw new MantisHandlingException(e);
+        }
+
+        final long borrowStart = System.currentTimeMillis();
+        long start = 0;
+        MantisSession session = null;
+        // whether the breaker has been told the outcome of the call
+        boolean reported = false;
+        boolean succeeded = false;
+        try {
+            // may wait for the in-flight limit of the site
+            session = pool.borrow(this);
+            session.setTimeout(getTimeout(operation));
+            start = System.currentTimeMillis();
+            MantisMetrics.startCall();
+            final T result = callable.call(session);
+            // each SOAP request may wait for the rate limit, see RateLimitHandler
+            breaker.onSuccess(operation, System.currentTimeMillis() - start - MantisMetrics.getWaitTime());
+            reported = true;
+            succeeded = true;
+            return result;
+        } catch (final MantisHandlingException e) {
+            // an interrupted call, e.g. waiting for the rate limit, tells nothing about Mantis
+            if (start != 0 && !Thread.currentThread().isInterrupted()) {
+                breaker.onFailure(e.isTransportFailure(), e.getMessage());
+                reported = true;
+            }
+            throw e;
+        } finally {
+            if (!reported) {
+                // failed before or without reaching Mantis, e.g. interrupted
+                breaker.abort();
+            }
+            if (start != 0) {
+                final long[] call = MantisMetrics.endCall();
+                final long waited = call[MantisMetrics.WAIT_TIME];
+                metrics.record(start - borrowStart + waited, System.currentTimeMillis() - start - waited,
+                        !succeeded, call[MantisMetrics.REQUESTS], call[MantisMetrics.BYTES_IN],
+                        call[MantisMetrics.BYTES_OUT]);
+            }
+            pool.release(session);
+        }
     }
 
-    private MantisSession createSession() throws MantisHandlingException {
-        return MantisSessionFactory.getSession(this);
+    /**
+     * Operation invoked with a pooled {@link MantisSession}.
+     */
+    private interface SessionCallable<T> {
+
+        T call(MantisSession session) throws MantisHandlingException;
     }
 
     public enum MantisVersion {
@@ -0,0 +1,50 @@
+package hudson.plugins.mantis;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+
+/**
+ * Shares compiled issue id patterns, keyed by the regular expression.
+ *
+ * All jobs using the same pattern (usually the default one) share one
+ * {@link Pattern} instance, so it is compiled once.
+ */
+public final class PatternCache {
+
+    private static final ConcurrentMap<String, Pattern> PATTERNS = new ConcurrentHashMap<String, Pattern>();
+
+    private PatternCache() {
+        // hide default constructor
+    }
+
+    /**
+     * Returns the compiled pattern for the specified regular expression.
+     */
+    public static Pattern compile(final String regex) {
+        Pattern pattern = PATTERNS.get(regex);
+        if (pattern == null) {
+            pattern = Pattern.compile(regex);
+            final Pattern existing = PATTERNS.putIfAbsent(regex, pattern);
+            if (existing != null) {
+                pattern = existing;
+            }
+        }
+        return pattern;
+    }
+
+    /**
+     * Returns the shared instance equivalent to the specified pattern.
+     */
+    public static Pattern intern(final Pattern pattern) {
+        if (pattern == null || pattern.flags() != 0) {
+            return pattern;
+        }
+        final Pattern existing = PATTERNS.putIfAbsent(pattern.pattern(), pattern);
+        return existing != null ? existing : pattern;
+    }
+
+    public static int size() {
+        return PATTERNS.size();
+    }
+}
@@ -4,7 +4,10 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
 
+import com.google.common.base.Optional;
+import com.google.common.collect.MapMaker;
 import com.google.common.collect.Maps;
 
 import hudson.model.AbstractBuild;
@@ -22,51 +25,86 @@ public class RunScmChangeExtractor {
     private static final String GET_CHANGESET_METHOD = "getChangeSets";
     private static final String CANNOT_ACCESS_GET_CHANGESET_METHOD = "cannot call " + GET_CHANGESET_METHOD;
 
+    /**
+     * GET_CHANGESET_METHOD of each Run type, absent if the type does not have
+     * it. Keys are weak and values soft, as a Method refers to its class, so
+     * that the Run types of uninstalled plugins can be unloaded.
+     */
+    private static final ConcurrentMap<Class<?>, Optional<Method>> METHODS =
+            new MapMaker().weakKeys().softValues().makeMap();
+
     private RunScmChangeExtractor() {
     }
 
     public static List<ChangeLogSet<? extends Entry>> getChanges(Run<?, ?> run) {
         if (run == null) {
             throw new IllegalStateException("run cannot be null!");
-        } else {
-            return getChangesUsingReflection(run);
         }
+        final Optional<List<ChangeLogSet<? extends Entry>>> changes = findChanges(run);
+        if (!changes.isPresent()) {
+            throw new IllegalArgumentException("Unsupported Run type " + run.getClass().getName());
+        }
+        return changes.get();
+    }
+
+    /**
+     * Returns changeSets of the run, or absent if the type of the run does
+     * not record SCM changes.
+     */
+    public static Optional<List<ChangeLogSet<? extends Entry>>> findChanges(Run<?, ?> run) {
+        if (run instanceof AbstractBuild) {
+            final List<ChangeLogSet<? extends Entry>> changeSets =
+                    ((AbstractBuild<?, ?>) run).getChangeSets();
+            return Optional.of(changeSets);
+        }
+        return getChangesUsingReflection(run);
     }
 
     /**
      * return changeSets using java reflection api, for example for workflow
-     * jobs.
+     * jobs. The method is looked up once per Run type.
      *
      * until JENKINS-24141
      *
      * @param run
      *            - run that imlement some type with GET_CHANGESET_METHOD
-     * @return collection of scm ChangeLogSet entries
+     * @return collection of scm ChangeLogSet entries, or absent if run does
+     *         not have GET_CHANGESET_METHOD
      */
     @SuppressWarnings("unchecked")
-    static List<ChangeLogSet<? extends Entry>> getChangesUsingReflection(Run<?, ?> run) {
-        Method getChangeSetMethod = null;
-        for (Method method : run.getClass().getMethods()) {
-            if (method.getName().equals(GET_CHANGESET_METHOD) && List.class.isAssignableFrom(method.getReturnType())) {
-                getChangeSetMethod = method;
-                break;
-            }
+    static Optional<List<ChangeLogSet<? extends Entry>>> getChangesUsingReflection(Run<?, ?> run) {
+        final Optional<Method> getChangeSetMethod = findMethod(run.getClass());
+        if (!getChangeSetMethod.isPresent()) {
+            // if run don't have GET_CHANGESET_METHOD, we don't support it
+            return Optional.absent();
+        }
+        try {
+            Object result = getChangeSetMethod.get().invoke(run);
+            return Optional.of((List<ChangeLogSet<? extends Entry>>) result);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(CANNOT_ACCESS_GET_CHANGESET_METHOD, e);
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException(CANNOT_ACCESS_GET_CHANGESET_METHOD, e);
         }
-        if (getChangeSetMethod != null) {
+    }
+
+    private static Optional<Method> findMethod(final Class<?> type) {
+        Optional<Method> method = METHODS.get(type);
+        if (method == null) {
+            method = Optional.absent();
             try {
-                Object result = getChangeSetMethod.invoke(run, new Object[] {});
-                return (List<ChangeLogSet<? extends Entry>>) result;
-            } catch (IllegalAccessException e) {
-                throw new IllegalStateException(CANNOT_ACCESS_GET_CHANGESET_METHOD, e);
-            } catch (IllegalArgumentException e) {
-                throw new IllegalStateException(CANNOT_ACCESS_GET_CHANGESET_METHOD, e);
-            } catch (InvocationTargetException e) {
-                throw new IllegalStateException(CANNOT_ACCESS_GET_CHANGESET_METHOD, e);
+                final Method m = type.getMethod(GET_CHANGESET_METHOD);
+                if (List.class.isAssignableFrom(m.getReturnType())) {
+                    method = Optional.of(m);
+                }
+            } catch (NoSuchMethodException e) {
+                // absent
+            } catch (SecurityException e) {
+                // absent
             }
-        } else {
-            // if run don't have GET_CHANGESET_METHOD, we don't support it
-            throw new IllegalArgumentException("Unsupported Run type " + run.getClass().getName());
+            METHODS.putIfAbsent(type, method);
         }
+        return method;
     }
 
     public static Map<AbstractProject, DependencyChange> getDependencyChanges(Run<?, ?> run) {
@@ -1,8 +1,19 @@
 package hudson.plugins.mantis;
 
+import java.io.IOException;
 import java.io.PrintStream;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
@@ -72,19 +83,55 @@ final class Updater {
             build.addAction(new MantisCarryOverChangeSetAction(chnageSets));
         }
 
+        // one note per issue, listing all the related changesets
+        final Map<Integer, List<ChangeSet>> changeSetsById = groupById(chnageSets);
+        final Set<Integer> ids = changeSetsById.keySet();
+        Map<Integer, MantisIssue> found;
+        try {
+            found = site.getIssues(ids);
+        } catch (final MantisHandlingException e) {
+            // retrieve them one by one below
+            LOGGER.log(Level.FINE, "Failed to get Mantis issues at once.", e);
+            found = Collections.<Integer, MantisIssue>emptyMap();
+        }
+
+        // notes are added concurrently if the site allows it, but results
+        // are logged in the order of issues.
+        final boolean queueNotes = MantisProjectProperty.DESCRIPTOR.isUseOutbox();
+        final ExecutorService executor = site.getNoteExecutor();
+        final List<FutureTask<MantisIssue>> tasks = new ArrayList<FutureTask<MantisIssue>>();
+        for (final Map.Entry<Integer, List<ChangeSet>> entry : changeSetsById.entrySet()) {
+            final String text = update ? createUpdateText(build, entry.getValue(), rootUrl) : null;
+            final FutureTask<MantisIssue> task =
+                    new FutureTask<MantisIssue>(new UpdateTask(site, entry.getKey(), found, text, queueNotes));
+            tasks.add(task);
+            if (executor != null) {
+                executor.execute(task);
+            } else {
+                task.run();
+            }
+        }
+
         final List<MantisIssue> issues = new ArrayList<MantisIssue>();
-        for (final ChangeSet changeSet : chnageSets) {
+        int i = 0;
+        for (final Integer id : ids) {
             try {
-                final MantisIssue issue = site.getIssue(changeSet.getId());
+                final MantisIssue issue = getResult(tasks.get(i++));
                 if (update) {
-                    final String text = createUpdateText(build, changeSet, rootUrl);
-                    site.updateIssue(changeSet.getId(), text, keepNotePrivate);
-                    Utility.log(logger, Messages.Updater_Updating(changeSet.getId()));
+                    Utility.log(logger, queueNotes ? Messages.Updater_Queued(id) : Messages.Updater_Updating(id));
+                }
+                if (issue != null) {
+                    issues.add(issue);
                 }
-                issues.add(issue);
             } catch (final MantisHandlingException e) {
-                Utility.log(logger, Messages.Updater_FailedToAddNote(changeSet, e.getMessage()));
-                LOGGER.log(Level.WARNING, Messages.Updater_FailedToAddNote_StarckTrace(changeSet), e);
+                Utility.log(logger, Messages.Updater_FailedToAddNote(id, e.getMessage()));
+                LOGGER.log(Level.WARNING, Messages.Updater_FailedToAddNote_StarckTrace(id), e);
+            } catch (final InterruptedException e) {
+                for (final FutureTask<MantisIssue> task : tasks) {
+                    task.cancel(true);
+                }
+                Thread.currentThread().interrupt();
+                break;
             }
         }
 
@@ -95,7 +142,91 @@ final class Updater {
         return true;
     }
 
-    private String createUpdateText(final Run<?, ?> build, final ChangeSet changeSet, final String rootUrl) {
+    private MantisIssue getResult(final FutureTask<MantisIssue> task)
+            throws MantisHandlingException, InterruptedException {
+        try {
+            return task.get();
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof MantisHandlingException) {
+                throw (MantisHandlingException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new MantisHandlingException(cause);
+        }
+    }
+
+    /**
+     * Retrieves the issue and adds the note if any. Queued notes do not
+     * depend on Mantis being available, so the issue is null if it could
+     * not be retrieved.
+     */
+    private final class UpdateTask implements Callable<MantisIssue> {
+
+        private final MantisSite site;
+
+        private final int id;
+
+        private final Map<Integer, MantisIssue> found;
+
+        private final String text;
+
+        private final boolean queueNote;
+
+        UpdateTask(final MantisSite site, final int id, final Map<Integer, MantisIssue> found, final String text,
+                final boolean queueNote) {
+            this.site = site;
+            this.id = id;
+            this.found = found;
+            this.text = text;
+            this.queueNote = queueNote;
+        }
+
+        public MantisIssue call() throws MantisHandlingException {
+            if (queueNote && text != null) {
+                try {
+                    MantisOutbox.get().addNote(site, id, text, keepNotePrivate);
+                } catch (final IOException e) {
+                    throw new MantisHandlingException(e);
+                }
+                try {
+                    return found.containsKey(id) ? found.get(id) : site.getIssue(id);
+                } catch (final MantisHandlingException e) {
+                    LOGGER.log(Level.FINE, "Failed to get Mantis issue #" + id, e);
+                    return null;
+                }
+            }
+
+            MantisIssue issue = found.get(id);
+            if (issue == null) {
+                issue = site.getIssue(id);
+            }
+            if (text != null) {
+                site.updateIssue(id, text, keepNotePrivate);
+            }
+            return issue;
+        }
+    }
+
+    private Map<Integer, List<ChangeSet>> groupById(final List<ChangeSet> changeSets) {
+        final Map<Integer, List<ChangeSet>> changeSetsById = new LinkedHashMap<Integer, List<ChangeSet>>();
+        for (final ChangeSet changeSet : changeSets) {
+            List<ChangeSet> list = changeSetsById.get(changeSet.getId());
+            if (list == null) {
+                list = new ArrayList<ChangeSet>();
+                changeSetsById.put(changeSet.getId(), list);
+            }
+            list.add(changeSet);
+        }
+        return changeSetsById;
+    }
+
+    private String createUpdateText(final Run<?, ?> build, final List<ChangeSet> changeSets, final String rootUrl) {
         final String prjName = build.getParent().getName();
         final int prjNumber = build.getNumber();
         final String url = rootUrl + build.getUrl();
@@ -105,7 +236,14 @@ final class Updater {
         text.append(CRLF).append(CRLF);
 
         if (recordChangeNote) {
-            text.append(changeSet.createChangeLog());
+            // the same changeset may have been carried over more than once
+            final Set<String> changeLogs = new LinkedHashSet<String>();
+            for (final ChangeSet changeSet : changeSets) {
+                changeLogs.add(changeSet.createChangeLog());
+            }
+            for (final String changeLog : changeLogs) {
+                text.append(changeLog);
+            }
         }
         return text.toString();
     }
@@ -124,20 +262,24 @@ final class Updater {
         }
 
         if (changeSets != null) {
-            chnageSets.addAll(findChangeSetsFromChangeLogSets(changeSets, build));
+            chnageSets.addAll(findChangeSetsFromChangeLogSets(changeSets, MantisProjectProperty.get(build)));
         }
         return chnageSets;
     }
 
-    private List<ChangeSet> findChangeSetsFromChangeLogSets(List<ChangeLogSet<? extends Entry>> changeSets,
-            final Run<?, ?> build) {
+    static List<ChangeSet> findChangeSetsFromChangeLogSets(List<ChangeLogSet<? extends Entry>> changeSets,
+            final MantisProjectProperty mpp) {
         final List<ChangeSet> mantisChangeSets = new ArrayList<ChangeSet>();
 
-        MantisProjectProperty mpp = MantisProjectProperty.get(build);
         final Pattern pattern = mpp.getRegexpPattern();
 
         for (ChangeLogSet<? extends Entry> set : changeSets) {
             for (Entry change : set) {
+                if (!mpp.mayContainIssueId(change.getMsg())) {
+                    continue;
+                }
+                // an issue mentioned twice in one commit message is related once
+                final Set<Integer> ids = new HashSet<Integer>();
                 final Matcher matcher = pattern.matcher(change.getMsg());
                 while (matcher.find()) {
                     int id;
@@ -148,7 +290,9 @@ final class Updater {
                         LOGGER.log(Level.WARNING, Messages.Updater_IllegalMantisId(matcher.group(1)));
                         continue;
                     }
-                    mantisChangeSets.add(ChangeSetFactory.newInstance(id, change.getParent().getBrowser(), change));
+                    if (ids.add(id)) {
+                        mantisChangeSets.add(ChangeSetFactory.newInstance(id, change.getParent().getBrowser(), change));
+                    }
                 }
             }
         }
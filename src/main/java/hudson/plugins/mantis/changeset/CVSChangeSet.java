@@ -6,6 +6,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.logging.Logger;
 
+import hudson.Extension;
 import hudson.scm.CVSChangeLogSet;
 import hudson.scm.CVSRepositoryBrowser;
 import hudson.scm.EditType;
@@ -29,6 +30,23 @@ public class CVSChangeSet extends AbstractChangeSet<CVSChangeLogSet.CVSChangeLog
         this.repoBrowser = repoBrowser;
     }
 
+    /**
+     * Creates {@link CVSChangeSet}s, if the CVS plugin is installed.
+     */
+    @Extension(optional = true)
+    public static final class Adapter extends ChangeSetAdapter {
+
+        @Override
+        public boolean isApplicable(final Class<? extends Entry> entryType) {
+            return CVSChangeLogSet.CVSChangeLog.class.isAssignableFrom(entryType);
+        }
+
+        @Override
+        public ChangeSet newInstance(final int id, final RepositoryBrowser<Entry> repoBrowser, final Entry entry) {
+            return new CVSChangeSet(id, repoBrowser, (CVSChangeLogSet.CVSChangeLog) entry);
+        }
+    }
+
     @Override
     public String createChangeLog() {
         final StringBuilder text = new StringBuilder();
@@ -0,0 +1,28 @@
+package hudson.plugins.mantis.changeset;
+
+import hudson.ExtensionList;
+import hudson.ExtensionPoint;
+import hudson.model.Hudson;
+import hudson.scm.RepositoryBrowser;
+import hudson.scm.ChangeLogSet.Entry;
+
+/**
+ * Creates {@link ChangeSet}s from the changelog entries of one SCM.
+ *
+ * Adapters for SCMs provided by other plugins should be registered with
+ * {@code @Extension(optional = true)}, so that they are skipped if the
+ * plugin is not installed.
+ */
+public abstract class ChangeSetAdapter implements ExtensionPoint {
+
+    /**
+     * Returns true if this adapter handles entries of the specified type.
+     */
+    public abstract boolean isApplicable(Class<? extends Entry> entryType);
+
+    public abstract ChangeSet newInstance(int id, RepositoryBrowser<Entry> repoBrowser, Entry entry);
+
+    public static ExtensionList<ChangeSetAdapter> all() {
+        return Hudson.getInstance().getExtensionList(ChangeSetAdapter.class);
+    }
+}
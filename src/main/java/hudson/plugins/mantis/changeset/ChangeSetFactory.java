@@ -1,19 +1,49 @@
 package hudson.plugins.mantis.changeset;
 
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.common.collect.MapMaker;
+
 import hudson.model.Hudson;
-import hudson.scm.CVSChangeLogSet;
 import hudson.scm.RepositoryBrowser;
-import hudson.scm.SubversionChangeLogSet;
 import hudson.scm.ChangeLogSet.Entry;
 
 /**
  * ChangeSet Factory.
  *
+ * The {@link ChangeSetAdapter} found for an entry type is remembered.
+ * Entry types without an adapter are looked up again each time, as an
+ * adapter for them may be contributed by a plugin installed later.
+ *
  * @author Seiji Sogabe
  * @since 0.7
  */
 public final class ChangeSetFactory {
 
+    /**
+     * used for entries no adapter is applicable to.
+     */
+    private static final ChangeSetAdapter DEFAULT = new ChangeSetAdapter() {
+
+        @Override
+        public boolean isApplicable(final Class<? extends Entry> entryType) {
+            return true;
+        }
+
+        @Override
+        public ChangeSet newInstance(final int id, final RepositoryBrowser<Entry> repoBrowser, final Entry entry) {
+            return new DefaultChangeSet(id, repoBrowser, entry);
+        }
+    };
+
+    /**
+     * adapters by entry type. Weak, so that the classes of uninstalled SCM
+     * plugins can be unloaded; the adapters themselves are held by the
+     * extension list.
+     */
+    private static final ConcurrentMap<Class<? extends Entry>, ChangeSetAdapter> ADAPTERS =
+            new MapMaker().weakKeys().weakValues().makeMap();
+
     private ChangeSetFactory() {
         // hide default constructor
     }
@@ -26,26 +56,23 @@ public final class ChangeSetFactory {
         if (entry == null) {
             throw new IllegalArgumentException();
         }
+        return getAdapter(entry.getClass()).newInstance(id, repoBrowser, entry);
+    }
 
-        final Hudson hudson = Hudson.getInstance();
-
-        // CVS
-        if (hudson.getPlugin("cvs") != null && entry instanceof CVSChangeLogSet.CVSChangeLog) {
-            return new CVSChangeSet(id, repoBrowser, (CVSChangeLogSet.CVSChangeLog) entry);
-        }
-        // Subversion
-        if (hudson.getPlugin("subversion") != null && entry instanceof SubversionChangeLogSet.LogEntry) {
-            return new SubversionChangeSet(id, repoBrowser, (SubversionChangeLogSet.LogEntry) entry);
-        }
-        // Mercurial
-        if (hudson.getPlugin("mercurial") != null && entry instanceof hudson.plugins.mercurial.MercurialChangeSet) {
-            return new MercurialChangeSet(id, repoBrowser, (hudson.plugins.mercurial.MercurialChangeSet) entry);
+    static ChangeSetAdapter getAdapter(final Class<? extends Entry> entryType) {
+        ChangeSetAdapter adapter = ADAPTERS.get(entryType);
+        if (adapter != null) {
+            return adapter;
         }
-        // Git
-        if (hudson.getPlugin("git") != null && entry instanceof hudson.plugins.git.GitChangeSet) {
-            return new GitChangeSet(id, repoBrowser, (hudson.plugins.git.GitChangeSet) entry);
+        // extensions are not available before Jenkins is up
+        if (Hudson.getInstance() != null) {
+            for (final ChangeSetAdapter candidate : ChangeSetAdapter.all()) {
+                if (candidate.isApplicable(entryType)) {
+                    ADAPTERS.putIfAbsent(entryType, candidate);
+                    return candidate;
+                }
+            }
         }
-        // else
-        return new DefaultChangeSet(id, repoBrowser, entry);
+        return DEFAULT;
     }
 }
@@ -0,0 +1,56 @@
+package hudson.plugins.mantis.changeset;
+
+import java.io.Serializable;
+
+/**
+ * ChangeSet whose changelog has been rendered in advance, so that it does
+ * not refer to the changelog entry, the repository browser or the build.
+ */
+public final class DetachedChangeSet implements ChangeSet, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int id;
+
+    private final String changeLog;
+
+    public DetachedChangeSet(final int id, final String changeLog) {
+        this.id = id;
+        this.changeLog = changeLog != null ? changeLog : "";
+    }
+
+    /**
+     * Returns the detached form of the specified changeSet.
+     */
+    public static DetachedChangeSet detach(final ChangeSet changeSet) {
+        if (changeSet instanceof DetachedChangeSet) {
+            return (DetachedChangeSet) changeSet;
+        }
+        return new DetachedChangeSet(changeSet.getId(), changeSet.createChangeLog());
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String createChangeLog() {
+        return changeLog;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof DetachedChangeSet)) {
+            return false;
+        }
+        final DetachedChangeSet other = (DetachedChangeSet) obj;
+        return id == other.id && changeLog.equals(other.changeLog);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * id + changeLog.hashCode();
+    }
+}
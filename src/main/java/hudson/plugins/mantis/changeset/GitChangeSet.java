@@ -2,6 +2,7 @@ package hudson.plugins.mantis.changeset;
 
 import java.util.Collection;
 
+import hudson.Extension;
 import hudson.scm.RepositoryBrowser;
 import hudson.scm.ChangeLogSet.Entry;
 
@@ -20,6 +21,23 @@ public class GitChangeSet extends AbstractChangeSet<hudson.plugins.git.GitChange
         super(id, repoBrowser, entry);
     }
 
+    /**
+     * Creates {@link GitChangeSet}s, if the Git plugin is installed.
+     */
+    @Extension(optional = true)
+    public static final class Adapter extends ChangeSetAdapter {
+
+        @Override
+        public boolean isApplicable(final Class<? extends Entry> entryType) {
+            return hudson.plugins.git.GitChangeSet.class.isAssignableFrom(entryType);
+        }
+
+        @Override
+        public ChangeSet newInstance(final int id, final RepositoryBrowser<Entry> repoBrowser, final Entry entry) {
+            return new GitChangeSet(id, repoBrowser, (hudson.plugins.git.GitChangeSet) entry);
+        }
+    }
+
     @Override
     public String createChangeLog() {
         final StringBuilder text = new StringBuilder();
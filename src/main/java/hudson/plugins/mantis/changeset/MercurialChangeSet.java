@@ -3,6 +3,7 @@ package hudson.plugins.mantis.changeset;
 import java.util.ArrayList;
 import java.util.List;
 
+import hudson.Extension;
 import hudson.scm.EditType;
 import hudson.scm.RepositoryBrowser;
 import hudson.scm.ChangeLogSet.Entry;
@@ -22,6 +23,23 @@ public class MercurialChangeSet extends AbstractChangeSet<hudson.plugins.mercuri
         super(id, repoBrowser, entry);
     }
 
+    /**
+     * Creates {@link MercurialChangeSet}s, if the Mercurial plugin is installed.
+     */
+    @Extension(optional = true)
+    public static final class Adapter extends ChangeSetAdapter {
+
+        @Override
+        public boolean isApplicable(final Class<? extends Entry> entryType) {
+            return hudson.plugins.mercurial.MercurialChangeSet.class.isAssignableFrom(entryType);
+        }
+
+        @Override
+        public ChangeSet newInstance(final int id, final RepositoryBrowser<Entry> repoBrowser, final Entry entry) {
+            return new MercurialChangeSet(id, repoBrowser, (hudson.plugins.mercurial.MercurialChangeSet) entry);
+        }
+    }
+
     @Override
     public String createChangeLog() {
         final StringBuilder text = new StringBuilder();
@@ -3,6 +3,7 @@ package hudson.plugins.mantis.changeset;
 import java.util.ArrayList;
 import java.util.List;
 
+import hudson.Extension;
 import hudson.scm.EditType;
 import hudson.scm.RepositoryBrowser;
 import hudson.scm.SubversionChangeLogSet;
@@ -23,6 +24,23 @@ public class SubversionChangeSet extends AbstractChangeSet<SubversionChangeLogSe
         super(id, repoBrowser, entry);
     }
 
+    /**
+     * Creates {@link SubversionChangeSet}s, if the Subversion plugin is installed.
+     */
+    @Extension(optional = true)
+    public static final class Adapter extends ChangeSetAdapter {
+
+        @Override
+        public boolean isApplicable(final Class<? extends Entry> entryType) {
+            return SubversionChangeLogSet.LogEntry.class.isAssignableFrom(entryType);
+        }
+
+        @Override
+        public ChangeSet newInstance(final int id, final RepositoryBrowser<Entry> repoBrowser, final Entry entry) {
+            return new SubversionChangeSet(id, repoBrowser, (SubversionChangeLogSet.LogEntry) entry);
+        }
+    }
+
     @Override
     public String createChangeLog() {
         final StringBuilder text = new StringBuilder();
@@ -11,6 +11,17 @@ public final class MantisIssue implements Serializable {
 
     private static final long serialVersionUID = 1L;
 
+    /**
+     * status is not known, e.g. issues saved by older versions.
+     */
+    public static final int UNKNOWN_STATUS = 0;
+
+    /**
+     * status "resolved" of Mantis. Statuses from this on are regarded as
+     * done.
+     */
+    public static final int RESOLVED_STATUS = 80;
+
     private int id;
 
     private String summary;
@@ -23,6 +34,8 @@ public final class MantisIssue implements Serializable {
     
     private MantisViewState viewState;
 
+    private int status;
+
     public int getId() {
         return id;
     }
@@ -44,8 +57,21 @@ public final class MantisIssue implements Serializable {
     }
 
     public MantisIssue(final int id, final String summary) {
+        this(id, summary, UNKNOWN_STATUS);
+    }
+
+    public MantisIssue(final int id, final String summary, final int status) {
         this.id = id;
         this.summary = summary;
+        this.status = status;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public boolean isResolved() {
+        return status >= RESOLVED_STATUS;
     }
 
     public MantisViewState getViewState() {
@@ -0,0 +1,73 @@
+package hudson.plugins.mantis.scripts;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writer keeping at most a fixed number of characters in memory.
+ *
+ * Characters beyond the limit are dropped, but are still passed to the
+ * optional overflow writer, which receives the complete output.
+ */
+public final class BoundedWriter extends Writer {
+
+    private final StringBuilder buffer;
+
+    private final int limit;
+
+    private final Writer overflow;
+
+    private boolean truncated;
+
+    public BoundedWriter(final int limit, final Writer overflow) {
+        this.limit = limit;
+        this.overflow = overflow;
+        this.buffer = new StringBuilder(Math.min(limit, 16 * 1024));
+    }
+
+    @Override
+    public void write(final char[] cbuf, final int off, final int len) throws IOException {
+        final int room = limit - buffer.length();
+        if (len <= room) {
+            buffer.append(cbuf, off, len);
+        } else {
+            if (room > 0) {
+                buffer.append(cbuf, off, room);
+            }
+            truncated = true;
+        }
+        if (overflow != null) {
+            overflow.write(cbuf, off, len);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (overflow != null) {
+            overflow.flush();
+        }
+    }
+
+    /**
+     * Does not close the overflow writer, which belongs to the caller.
+     */
+    @Override
+    public void close() throws IOException {
+        flush();
+    }
+
+    /**
+     * Returns true if some characters were dropped.
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    /**
+     * Returns the characters kept in memory.
+     */
+    @Override
+    public String toString() {
+        return buffer.toString();
+    }
+}
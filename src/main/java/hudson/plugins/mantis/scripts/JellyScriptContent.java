@@ -3,12 +3,17 @@ package hudson.plugins.mantis.scripts;
 import hudson.model.AbstractBuild;
 import hudson.model.Hudson;
 import hudson.model.Result;
-import java.io.ByteArrayOutputStream;
+import hudson.plugins.mantis.Messages;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.Writer;
+import java.net.URL;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.apache.commons.io.IOUtils;
@@ -26,22 +31,58 @@ import org.xml.sax.InputSource;
  */
 public class JellyScriptContent implements ScriptContent {
 
-    private static final int BUFFER_SIZE = 16 * 1024;
-    
+    /**
+     * max number of characters of a description kept in memory. Mantis
+     * rejects larger descriptions anyway.
+     */
+    private static final int MAX_DESCRIPTION_LENGTH = Integer.getInteger(
+            JellyScriptContent.class.getName() + ".maxDescriptionLength", 64 * 1024);
+
+    private static final String BUNDLED_TEMPLATES = "hudson/plugins/mantis/scripts/templates/descriptions/";
+
+    /**
+     * compiled templates, keyed by template name.
+     */
+    private static final ConcurrentMap<String, CompiledTemplate> TEMPLATES =
+            new ConcurrentHashMap<String, CompiledTemplate>();
+
+    private static final AtomicLong HIT_COUNT = new AtomicLong();
+
+    private static final AtomicLong MISS_COUNT = new AtomicLong();
+
+    private static final AtomicLong RENDER_COUNT = new AtomicLong();
+
+    private static final AtomicLong RENDER_TIME = new AtomicLong();
+
     public String getContent(AbstractBuild<?, ?> build, Result result) throws IOException, InterruptedException {
-        InputStream inputStream = null;
+        return getContent(build, result, null);
+    }
+
+    /**
+     * Renders the description. The returned text is cut off at
+     * the max description length, while the overflow writer, if not null,
+     * receives the complete text.
+     */
+    public String getContent(AbstractBuild<?, ?> build, Result result, Writer overflow)
+            throws IOException, InterruptedException {
+        return getContent(build, result, overflow, MAX_DESCRIPTION_LENGTH);
+    }
+
+    /**
+     * Renders the description, cut off at the specified length.
+     */
+    public String getContent(AbstractBuild<?, ?> build, Result result, Writer overflow, int maxLength)
+            throws IOException, InterruptedException {
         String templateName = result.toString().toLowerCase();
         try {
-            inputStream = getTemplateInputStream(templateName);
-            return renderContent(build, inputStream);
+            Script script = getScript(templateName);
+            return renderContent(build, script, overflow, Math.min(maxLength, MAX_DESCRIPTION_LENGTH));
         } catch (JellyException e) {
             LOGGER.log(Level.WARNING, "failed to parse jelly template.", e);
             return "JellyException: " + e.getMessage();
         } catch (FileNotFoundException e) {
             String missingTemplateError = generateMissingTemplate(templateName);
             return missingTemplateError;
-        } finally {
-            IOUtils.closeQuietly(inputStream);
         }
     }
 
@@ -49,44 +90,77 @@ public class JellyScriptContent implements ScriptContent {
         return "Jelly script [" + template + "] was not found";
     }
 
-    private InputStream getTemplateInputStream(String templateName) throws FileNotFoundException {
+    /**
+     * Returns the compiled template. User templates are recompiled when the
+     * file has been modified.
+     */
+    private Script getScript(String templateName) throws JellyException, IOException {
         // $JENKINS_HOME/mantis/scripts/templates/
         File templatesFolder = new File(Hudson.getInstance().getRootDir(), "mantis/scripts/templates/descriptions");
         File templateFile = new File(templatesFolder, templateName + ".jelly");
-        if (templateFile.exists()) {
-            return new FileInputStream(templateFile);
+        boolean userTemplate = templateFile.exists();
+        String source;
+        long lastModified;
+        if (userTemplate) {
+            source = templateFile.getAbsolutePath();
+            lastModified = templateFile.lastModified();
+        } else {
+            // bundled templates
+            URL resource = getClass().getClassLoader().getResource(BUNDLED_TEMPLATES + templateName + ".jelly");
+            if (resource == null) {
+                throw new FileNotFoundException(templateName);
+            }
+            source = resource.toExternalForm();
+            lastModified = 0;
+        }
+
+        CompiledTemplate template = TEMPLATES.get(templateName);
+        if (template != null && template.isUpToDate(source, lastModified)) {
+            HIT_COUNT.incrementAndGet();
+            return template.script;
+        }
+        MISS_COUNT.incrementAndGet();
+
+        InputStream inputStream = null;
+        try {
+            inputStream = userTemplate ? new FileInputStream(templateFile) : new URL(source).openStream();
+            Script script = new JellyContext().compileScript(new InputSource(inputStream));
+            LOGGER.log(Level.FINE, "compiled jelly template {0}", source);
+            if (script != null) {
+                TEMPLATES.put(templateName, new CompiledTemplate(source, lastModified, script));
+            }
+            return script;
+        } finally {
+            IOUtils.closeQuietly(inputStream);
         }
-        // bundled templates
-        InputStream inputStream = getClass().getClassLoader().getResourceAsStream(
-                "hudson/plugins/mantis/scripts/templates/descriptions/" + templateName + ".jelly");
-        return inputStream;
     }
 
-    private String renderContent(AbstractBuild<?, ?> build, InputStream inputStream)
+    private String renderContent(AbstractBuild<?, ?> build, Script script, Writer overflow, int maxLength)
             throws JellyException, IOException {
+        if (script == null) {
+            return null;
+        }
         JellyContext context = createContext(new ScriptContentBuildWrapper(build), build);
-        Script script = context.compileScript(new InputSource(inputStream));
-        if (script != null) {
-            return convert(context, script);
+        long start = System.nanoTime();
+        try {
+            return convert(context, script, overflow, maxLength);
+        } finally {
+            RENDER_COUNT.incrementAndGet();
+            RENDER_TIME.addAndGet(System.nanoTime() - start);
         }
-        return null;
     }
-
-    private String convert(JellyContext context, Script script) throws JellyTagException, IOException {
-        ByteArrayOutputStream output = new ByteArrayOutputStream(BUFFER_SIZE);
-        XMLOutput xmlOutput = null;
+    private String convert(JellyContext context, Script script, Writer overflow, int maxLength)
+            throws JellyTagException, IOException {
+        BoundedWriter output = new BoundedWriter(maxLength, overflow);
+        XMLOutput xmlOutput = XMLOutput.createXMLOutput(output);
         try {
-            xmlOutput = XMLOutput.createXMLOutput(output);
             script.run(context, xmlOutput);
             xmlOutput.flush();
         } finally {
-            try {
-                if (xmlOutput != null) {
-                    xmlOutput.close();
-                }
-            } finally {
-                output.close();
-            }
+            xmlOutput.close();
+        }
+        if (output.isTruncated()) {
+            return output.toString() + "\n" + Messages.JellyScriptContent_Truncated(maxLength);
         }
         return output.toString();
     }
@@ -100,5 +174,54 @@ public class JellyScriptContent implements ScriptContent {
         return context;
     }
     
+    /**
+     * Discards all compiled templates.
+     */
+    public static void clearCache() {
+        TEMPLATES.clear();
+    }
+
+    public static long getCacheHitCount() {
+        return HIT_COUNT.get();
+    }
+
+    public static long getCacheMissCount() {
+        return MISS_COUNT.get();
+    }
+
+    public static long getRenderCount() {
+        return RENDER_COUNT.get();
+    }
+
+    /**
+     * Returns the average time in milliseconds to render a template.
+     */
+    public static double getAverageRenderTime() {
+        long count = RENDER_COUNT.get();
+        return count == 0 ? 0 : RENDER_TIME.get() / (count * 1000000.0);
+    }
+
+    /**
+     * Compiled template and the source it was compiled from.
+     */
+    private static final class CompiledTemplate {
+
+        private final String source;
+
+        private final long lastModified;
+
+        private final Script script;
+
+        CompiledTemplate(String source, long lastModified, Script script) {
+            this.source = source;
+            this.lastModified = lastModified;
+            this.script = script;
+        }
+
+        boolean isUpToDate(String source, long lastModified) {
+            return this.source.equals(source) && this.lastModified == lastModified;
+        }
+    }
+
     private static final Logger LOGGER = Logger.getLogger(JellyScriptContent.class.getName());
 }
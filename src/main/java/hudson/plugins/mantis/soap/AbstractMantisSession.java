@@ -4,6 +4,11 @@ import hudson.plugins.mantis.MantisHandlingException;
 import hudson.plugins.mantis.MantisSite;
 import hudson.plugins.mantis.model.MantisIssue;
 import hudson.plugins.mantis.model.MantisNote;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import org.apache.axis.EngineConfiguration;
 import org.apache.axis.Handler;
 import org.apache.axis.SimpleChain;
@@ -20,6 +25,12 @@ public abstract class AbstractMantisSession implements MantisSession {
 
     protected static final String END_POINT = "api/soap/mantisconnect.php";
 
+    /**
+     * if true, use plain {@link HTTPSender} which opens a connection per call.
+     */
+    private static final boolean DISABLE_KEEP_ALIVE =
+            Boolean.getBoolean(AbstractMantisSession.class.getName() + ".disableKeepAlive");
+
     protected MantisSite site;
 
     public abstract void addNote(int id, MantisNote note) throws MantisHandlingException;
@@ -28,19 +39,61 @@ public abstract class AbstractMantisSession implements MantisSession {
 
     public abstract String getVersion() throws MantisHandlingException;
 
+    /**
+     * Retrieves the issues one by one. Issues refused by Mantis are left out,
+     * but a transport failure is thrown at once, as the other issues would
+     * fail the same way.
+     */
+    public Map<Integer, MantisIssue> getIssues(final Collection<Integer> ids) throws MantisHandlingException {
+        final Map<Integer, MantisIssue> issues = new LinkedHashMap<Integer, MantisIssue>();
+        for (final Integer id : ids) {
+            try {
+                issues.put(id, getIssue(id));
+            } catch (final MantisHandlingException e) {
+                if (e.isTransportFailure()) {
+                    throw e;
+                }
+                LOGGER.log(Level.FINE, "Failed to get Mantis issue #" + id, e);
+            }
+        }
+        return issues;
+    }
+
     protected EngineConfiguration createClientConfig() {
         final SimpleProvider config = new SimpleProvider();
         final Handler handler = (Handler) new LogHandler();
+        final Handler metrics = new MetricsHandler();
+        final Handler rateLimit = new RateLimitHandler(MantisSessionPool.get(site));
         final SimpleChain reqChain = new SimpleChain();
         final SimpleChain resChain = new SimpleChain();
 
+        reqChain.addHandler(rateLimit);
         reqChain.addHandler(handler);
+        reqChain.addHandler(metrics);
         resChain.addHandler(handler);
+        resChain.addHandler(metrics);
 
-        final Handler pivot = (Handler) new HTTPSender();
+        final Handler pivot = createSender();
         final Handler transport = new SimpleTargetedChain(reqChain, pivot, resChain);
         config.deployTransport(HTTPTransport.DEFAULT_TRANSPORT_NAME, transport);
 
         return config;
     }
+
+    protected Handler createSender() {
+        return createSender(site.getUrl().toExternalForm(), !DISABLE_KEEP_ALIVE);
+    }
+
+    /**
+     * Returns the sender for the site, which keeps connections alive or
+     * opens a connection per call.
+     */
+    protected static Handler createSender(final String url, final boolean keepAlive) {
+        if (!keepAlive) {
+            return new HTTPSender();
+        }
+        return new KeepAliveHTTPSender(url);
+    }
+
+    private static final Logger LOGGER = Logger.getLogger(AbstractMantisSession.class.getName());
 }
@@ -0,0 +1,225 @@
+package hudson.plugins.mantis.soap;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Circuit breaker for calls to one Mantis site.
+ *
+ * After {@link #FAILURE_THRESHOLD} consecutive transport failures the
+ * breaker opens, and calls fail immediately instead of waiting for the
+ * socket timeout. After {@link #OPEN_DURATION} one trial call is let
+ * through (half-open); it closes the breaker if it succeeds and opens it
+ * again if not.
+ *
+ * The breaker also keeps the latencies of recent successful calls of each
+ * operation, from which the timeout of the next call of the operation is
+ * derived.
+ */
+public final class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private static final String PREFIX = CircuitBreaker.class.getName();
+
+    /**
+     * number of consecutive transport failures opening the breaker.
+     */
+    private static final int FAILURE_THRESHOLD = Integer.getInteger(PREFIX + ".failureThreshold", 5);
+
+    /**
+     * period in milliseconds the breaker stays open before a trial call.
+     */
+    private static final long OPEN_DURATION = Long.getLong(PREFIX + ".openDuration", 30) * 1000;
+
+    /**
+     * lower bound of the adaptive timeout in milliseconds.
+     */
+    private static final int MIN_TIMEOUT = Integer.getInteger(PREFIX + ".minTimeout", 5 * 1000);
+
+    /**
+     * upper bound of the adaptive timeout in milliseconds, also used until
+     * enough latencies have been observed.
+     */
+    private static final int MAX_TIMEOUT = Integer.getInteger(PREFIX + ".maxTimeout", 60 * 1000);
+
+    /**
+     * the timeout is this multiple of the 99th percentile latency.
+     */
+    private static final int TIMEOUT_MULTIPLIER = 4;
+
+    private static final int SAMPLES = 100;
+
+    private static final int MIN_SAMPLES = 20;
+
+    private final String name;
+
+    private final long openDuration;
+
+    private final Map<String, Latencies> latencies = new HashMap<String, Latencies>();
+
+    private State state = State.CLOSED;
+
+    private int consecutiveFailures;
+
+    private long openedAt;
+
+    private boolean trialInFlight;
+
+    private String lastFailure;
+
+    public CircuitBreaker(final String name) {
+        this(name, OPEN_DURATION);
+    }
+
+    CircuitBreaker(final String name, final long openDuration) {
+        this.name = name;
+        this.openDuration = openDuration;
+    }
+
+    /**
+     * Called before a call. Throws if the breaker is open, or if it is
+     * half-open and the trial call is in progress.
+     */
+    public synchronized void acquire() throws CircuitOpenException {
+        if (state == State.OPEN) {
+            if (System.currentTimeMillis() - openedAt < openDuration) {
+                throw new CircuitOpenException(name, lastFailure);
+            }
+            state = State.HALF_OPEN;
+            trialInFlight = false;
+        }
+        if (state == State.HALF_OPEN) {
+            if (trialInFlight) {
+                throw new CircuitOpenException(name, lastFailure);
+            }
+            trialInFlight = true;
+        }
+    }
+
+    /**
+     * Called after a successful call of the operation.
+     */
+    public synchronized void onSuccess(final String operation, final long latency) {
+        Latencies l = latencies.get(operation);
+        if (l == null) {
+            l = new Latencies();
+            latencies.put(operation, l);
+        }
+        l.add(latency);
+        reset();
+    }
+
+    /**
+     * Called after a failed call. Only transport failures count; if Mantis
+     * rejected the request, it is reachable.
+     */
+    public synchronized void onFailure(final boolean transportFailure, final String message) {
+        if (!transportFailure) {
+            reset();
+            return;
+        }
+        consecutiveFailures++;
+        lastFailure = message;
+        if (state == State.HALF_OPEN || consecutiveFailures >= FAILURE_THRESHOLD) {
+            if (state != State.OPEN) {
+                LOGGER.log(Level.WARNING, "Circuit breaker for {0} opened after {1} failures: {2}",
+                        new Object[] { name, consecutiveFailures, message });
+            }
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+            trialInFlight = false;
+        }
+    }
+
+    /**
+     * Called if the call failed before or without reaching Mantis, e.g. it
+     * was interrupted while waiting for a permit. Tells nothing about
+     * Mantis, so only the trial slot of a half-open breaker is given back.
+     */
+    public synchronized void abort() {
+        trialInFlight = false;
+    }
+
+    private void reset() {
+        if (state != State.CLOSED) {
+            LOGGER.log(Level.INFO, "Circuit breaker for {0} closed.", name);
+        }
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        trialInFlight = false;
+    }
+
+    public synchronized State getState() {
+        if (state == State.OPEN && System.currentTimeMillis() - openedAt >= openDuration) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    /**
+     * Returns the timeout in milliseconds for the next call of the operation.
+     */
+    public synchronized int getTimeout(final String operation) {
+        final Latencies l = latencies.get(operation);
+        return l != null ? l.timeout : MAX_TIMEOUT;
+    }
+
+    /**
+     * Returns the timeout in milliseconds for calls whose duration depends
+     * on the amount of data, e.g. uploads.
+     */
+    public static int getMaxTimeout() {
+        return MAX_TIMEOUT;
+    }
+
+    /**
+     * Returns the milliseconds until the next trial call, or 0 if the
+     * breaker is not open.
+     */
+    public synchronized long getRetryIn() {
+        if (state != State.OPEN) {
+            return 0;
+        }
+        return Math.max(0, openedAt + openDuration - System.currentTimeMillis());
+    }
+
+    public synchronized String getLastFailure() {
+        return lastFailure;
+    }
+
+    /**
+     * latencies of the recent successful calls of one operation.
+     */
+    private static final class Latencies {
+
+        private final long[] samples = new long[SAMPLES];
+
+        private int count;
+
+        private int next;
+
+        private int timeout = MAX_TIMEOUT;
+
+        private void add(final long latency) {
+            samples[next] = latency;
+            next = (next + 1) % SAMPLES;
+            if (count < SAMPLES) {
+                count++;
+            }
+            if (count >= MIN_SAMPLES) {
+                final long[] sorted = Arrays.copyOf(samples, count);
+                Arrays.sort(sorted);
+                final long p99 = sorted[(int) Math.ceil(count * 0.99) - 1];
+                timeout = (int) Math.max(MIN_TIMEOUT, Math.min(MAX_TIMEOUT, p99 * TIMEOUT_MULTIPLIER));
+            }
+        }
+    }
+
+    private static final Logger LOGGER = Logger.getLogger(CircuitBreaker.class.getName());
+}
@@ -0,0 +1,16 @@
+package hudson.plugins.mantis.soap;
+
+import java.io.IOException;
+
+/**
+ * Thrown instead of calling Mantis while the {@link CircuitBreaker} of the
+ * site is open. It is an I/O error, as Mantis is regarded as unreachable.
+ */
+public final class CircuitOpenException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    public CircuitOpenException(final String site, final String lastFailure) {
+        super("Mantis at " + site + " is not available: " + lastFailure);
+    }
+}
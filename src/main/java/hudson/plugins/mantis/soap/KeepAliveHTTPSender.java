@@ -0,0 +1,195 @@
+package hudson.plugins.mantis.soap;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.net.UnknownHostException;
+import java.security.GeneralSecurityException;
+import java.security.cert.X509Certificate;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509TrustManager;
+import org.apache.axis.MessageContext;
+import org.apache.axis.components.net.CommonsHTTPClientPropertiesFactory;
+import org.apache.axis.transport.http.CommonsHTTPSender;
+import org.apache.commons.httpclient.HostConfiguration;
+import org.apache.commons.httpclient.HttpClient;
+import org.apache.commons.httpclient.MultiThreadedHttpConnectionManager;
+import org.apache.commons.httpclient.params.HttpConnectionManagerParams;
+import org.apache.commons.httpclient.params.HttpConnectionParams;
+import org.apache.commons.httpclient.protocol.Protocol;
+import org.apache.commons.httpclient.protocol.SecureProtocolSocketFactory;
+import org.apache.commons.httpclient.util.IdleConnectionTimeoutThread;
+
+/**
+ * HTTP sender which keeps connections to Mantis alive.
+ *
+ * Unlike {@link org.apache.axis.transport.http.HTTPSender}, which opens a new
+ * connection (and TLS handshake) for every SOAP call, all instances for a
+ * site share one connection manager pooling persistent connections. Each
+ * site has its own manager, since Axis applies the timeout of a call to the
+ * parameters of the manager.
+ */
+public class KeepAliveHTTPSender extends CommonsHTTPSender {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final String PREFIX = KeepAliveHTTPSender.class.getName();
+
+    /**
+     * max number of connections per host.
+     */
+    private static final int MAX_CONNECTIONS_PER_HOST = Integer.getInteger(PREFIX + ".maxConnectionsPerHost", 10);
+
+    /**
+     * max number of connections per site.
+     */
+    private static final int MAX_TOTAL_CONNECTIONS = Integer.getInteger(PREFIX + ".maxTotalConnections", 50);
+
+    /**
+     * connect timeout in milliseconds.
+     */
+    private static final int CONNECT_TIMEOUT = Integer.getInteger(PREFIX + ".connectTimeout", 10 * 1000);
+
+    /**
+     * read timeout in milliseconds.
+     */
+    private static final int READ_TIMEOUT = Integer.getInteger(PREFIX + ".readTimeout", 60 * 1000);
+
+    /**
+     * idle connections are closed after this period in milliseconds.
+     */
+    private static final int IDLE_TIMEOUT = Integer.getInteger(PREFIX + ".idleTimeout", 60 * 1000);
+
+    private static final ConcurrentMap<String, MultiThreadedHttpConnectionManager> CONNECTION_MANAGERS =
+            new ConcurrentHashMap<String, MultiThreadedHttpConnectionManager>();
+
+    private static final IdleConnectionTimeoutThread EVICTOR = createEvictor();
+
+    private static final Protocol HTTPS = new Protocol("https", new TrustAllSocketFactory(), 443);
+
+    /**
+     * @param site URL of the Mantis site
+     */
+    public KeepAliveHTTPSender(final String site) {
+        connectionManager = getConnectionManager(site);
+    }
+
+    @Override
+    protected void initialize() {
+        // the connection manager is set by the constructor
+        clientProperties = CommonsHTTPClientPropertiesFactory.create();
+    }
+
+    @Override
+    protected HostConfiguration getHostConfiguration(final HttpClient client, final MessageContext context,
+            final URL targetURL) {
+        final HostConfiguration config = super.getHostConfiguration(client, context, targetURL);
+        // Allowing unsigned server certs, same as HTTPSender does
+        if ("https".equalsIgnoreCase(targetURL.getProtocol())) {
+            final int port = targetURL.getPort() != -1 ? targetURL.getPort() : HTTPS.getDefaultPort();
+            config.setHost(targetURL.getHost(), port, HTTPS);
+        }
+        return config;
+    }
+
+    private static MultiThreadedHttpConnectionManager getConnectionManager(final String site) {
+        MultiThreadedHttpConnectionManager manager = CONNECTION_MANAGERS.get(site);
+        if (manager == null) {
+            final MultiThreadedHttpConnectionManager newManager = createConnectionManager();
+            manager = CONNECTION_MANAGERS.putIfAbsent(site, newManager);
+            if (manager == null) {
+                manager = newManager;
+                EVICTOR.addConnectionManager(manager);
+            }
+        }
+        return manager;
+    }
+
+    private static MultiThreadedHttpConnectionManager createConnectionManager() {
+        final MultiThreadedHttpConnectionManager manager = new MultiThreadedHttpConnectionManager();
+        final HttpConnectionManagerParams params = manager.getParams();
+        params.setDefaultMaxConnectionsPerHost(MAX_CONNECTIONS_PER_HOST);
+        params.setMaxTotalConnections(MAX_TOTAL_CONNECTIONS);
+        params.setConnectionTimeout(CONNECT_TIMEOUT);
+        params.setSoTimeout(READ_TIMEOUT);
+        params.setStaleCheckingEnabled(true);
+        return manager;
+    }
+
+    private static IdleConnectionTimeoutThread createEvictor() {
+        final IdleConnectionTimeoutThread evictor = new IdleConnectionTimeoutThread();
+        evictor.setName("Mantis idle connection evictor");
+        evictor.setConnectionTimeout(IDLE_TIMEOUT);
+        evictor.setTimeoutInterval(Math.max(IDLE_TIMEOUT / 2, 1000));
+        evictor.start();
+        return evictor;
+    }
+
+    /**
+     * SSL socket factory accepting any server certificate.
+     */
+    private static final class TrustAllSocketFactory implements SecureProtocolSocketFactory {
+
+        private SSLSocketFactory factory;
+
+        private synchronized SSLSocketFactory getFactory() throws IOException {
+            if (factory == null) {
+                try {
+                    final SSLContext context = SSLContext.getInstance("TLS");
+                    context.init(null, new TrustManager[] { new TrustAllManager() }, null);
+                    factory = context.getSocketFactory();
+                } catch (final GeneralSecurityException e) {
+                    throw new IOException(e);
+                }
+            }
+            return factory;
+        }
+
+        public Socket createSocket(final String host, final int port, final InetAddress localAddress,
+                final int localPort) throws IOException, UnknownHostException {
+            return getFactory().createSocket(host, port, localAddress, localPort);
+        }
+
+        public Socket createSocket(final String host, final int port, final InetAddress localAddress,
+                final int localPort, final HttpConnectionParams params) throws IOException, UnknownHostException {
+            final int timeout = params != null ? params.getConnectionTimeout() : 0;
+            if (timeout == 0) {
+                return createSocket(host, port, localAddress, localPort);
+            }
+            final Socket socket = getFactory().createSocket();
+            socket.bind(new InetSocketAddress(localAddress, localPort));
+            socket.connect(new InetSocketAddress(host, port), timeout);
+            return socket;
+        }
+
+        public Socket createSocket(final String host, final int port) throws IOException, UnknownHostException {
+            return getFactory().createSocket(host, port);
+        }
+
+        public Socket createSocket(final Socket socket, final String host, final int port, final boolean autoClose)
+                throws IOException, UnknownHostException {
+            return getFactory().createSocket(socket, host, port, autoClose);
+        }
+    }
+
+    private static final class TrustAllManager implements X509TrustManager {
+
+        public void checkClientTrusted(final X509Certificate[] chain, final String authType) {
+            // trust all
+        }
+
+        public void checkServerTrusted(final X509Certificate[] chain, final String authType) {
+            // trust all
+        }
+
+        public X509Certificate[] getAcceptedIssuers() {
+            return new X509Certificate[0];
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package hudson.plugins.mantis.soap;
 
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.apache.axis.AxisFault;
 import org.apache.axis.Message;
@@ -8,33 +10,71 @@ import org.apache.axis.handlers.BasicHandler;
 
 /**
  * SOAP LogGandler.
+ *
+ * Messages are serialized only if FINE is enabled, and only for one call in
+ * {@link #SAMPLE_RATE}. Logged messages are cut after
+ * {@link #MAX_PAYLOAD_LENGTH} characters.
+ *
  * @author Seiji Sogabe
  */
 public class LogHandler extends BasicHandler {
 
     private static final long serialVersionUID = 1L;
 
+    private static final String PREFIX = LogHandler.class.getName();
+
+    /**
+     * one call in this number is logged.
+     */
+    private static final int SAMPLE_RATE = Math.max(1, Integer.getInteger(PREFIX + ".sampleRate", 1));
+
+    /**
+     * characters of a message logged, 0 or less is unlimited.
+     */
+    private static final int MAX_PAYLOAD_LENGTH = Integer.getInteger(PREFIX + ".maxPayloadLength", 4096);
+
+    /**
+     * MessageContext property holding whether the call is logged.
+     */
+    private static final String SAMPLED = PREFIX + ".sampled";
+
+    private static final AtomicLong CALLS = new AtomicLong();
+
     public void invoke(final MessageContext ctx) throws AxisFault {
 
-        if (ctx == null) {
+        if (ctx == null || !LOGGER.isLoggable(Level.FINE)) {
             return;
         }
 
-        final Message req = ctx.getRequestMessage();
-        final Message res = ctx.getResponseMessage();
-
-        if (req != null) {
-            LOGGER.fine("Request: " + req.getSOAPPartAsString());
-        } else {
-            LOGGER.fine("Request: (null)");
+        // the same handler is in the request and the response chain
+        if (!ctx.getPastPivot()) {
+            final boolean sampled = isSampled(CALLS.getAndIncrement(), SAMPLE_RATE);
+            ctx.setProperty(SAMPLED, Boolean.valueOf(sampled));
+            if (sampled) {
+                log("Request: ", ctx.getRequestMessage());
+            }
+        } else if (Boolean.TRUE.equals(ctx.getProperty(SAMPLED))) {
+            log("Response: ", ctx.getResponseMessage());
         }
+    }
 
-        if (res != null) {
-            LOGGER.fine("Response: " + res.getSOAPPartAsString());
-        } else {
-            LOGGER.fine("Response: (null)");
+    private static void log(final String label, final Message message) {
+        if (message == null) {
+            LOGGER.fine(label + "(null)");
+            return;
         }
+        LOGGER.fine(label + abbreviate(message.getSOAPPartAsString(), MAX_PAYLOAD_LENGTH));
+    }
 
+    static boolean isSampled(final long call, final int rate) {
+        return call % rate == 0;
+    }
+
+    static String abbreviate(final String text, final int maxLength) {
+        if (text == null || maxLength <= 0 || text.length() <= maxLength) {
+            return text;
+        }
+        return text.substring(0, maxLength) + "... (" + (text.length() - maxLength) + " more characters)";
     }
 
     private static final Logger LOGGER = Logger.getLogger(LogHandler.class.getName());
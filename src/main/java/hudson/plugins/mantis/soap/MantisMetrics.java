@@ -0,0 +1,187 @@
+package hudson.plugins.mantis.soap;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Metrics of the SOAP operations on one Mantis site.
+ *
+ * Metrics are kept per site URL as long as a site with that URL is
+ * configured, so they survive other configuration changes. Each operation
+ * is also registered as an MBean named
+ * {@code hudson.plugins.mantis:type=SoapOperation,site="<url>",name=<operation>}.
+ */
+public final class MantisMetrics {
+
+    private static final String JMX_DOMAIN = "hudson.plugins.mantis";
+
+    private static final ConcurrentMap<String, MantisMetrics> SITES = new ConcurrentHashMap<String, MantisMetrics>();
+
+    /**
+     * indexes of the values returned by {@link #endCall()}.
+     */
+    public static final int BYTES_IN = 0;
+
+    public static final int BYTES_OUT = 1;
+
+    public static final int REQUESTS = 2;
+
+    public static final int WAIT_TIME = 3;
+
+    /**
+     * bytes received and sent, SOAP requests sent and milliseconds waited
+     * for the rate limit by the call in progress on this thread.
+     */
+    private static final ThreadLocal<long[]> CALL = new ThreadLocal<long[]>();
+
+    private final String site;
+
+    private final ConcurrentMap<String, OperationMetrics> operations =
+            new ConcurrentHashMap<String, OperationMetrics>();
+
+    private MantisMetrics(final String site) {
+        this.site = site;
+    }
+
+    public static MantisMetrics get(final String site) {
+        MantisMetrics metrics = SITES.get(site);
+        if (metrics == null) {
+            final MantisMetrics newMetrics = new MantisMetrics(site);
+            metrics = SITES.putIfAbsent(site, newMetrics);
+            if (metrics == null) {
+                metrics = newMetrics;
+            }
+        }
+        return metrics;
+    }
+
+    /**
+     * Drops the metrics of sites other than the specified ones and
+     * unregisters their MBeans. Called when the global configuration has
+     * been changed.
+     */
+    public static void retain(final Collection<String> sites) {
+        for (final MantisMetrics metrics : SITES.values()) {
+            if (!sites.contains(metrics.site) && SITES.remove(metrics.site, metrics)) {
+                for (final OperationMetrics operation : metrics.operations.values()) {
+                    unregister(operation);
+                }
+            }
+        }
+    }
+
+    public String getSite() {
+        return site;
+    }
+
+    public OperationMetrics getOperation(final String name) {
+        OperationMetrics metrics = operations.get(name);
+        if (metrics == null) {
+            final OperationMetrics newMetrics = new OperationMetrics(site, name);
+            metrics = operations.putIfAbsent(name, newMetrics);
+            if (metrics == null) {
+                metrics = newMetrics;
+                register(metrics);
+            }
+        }
+        return metrics;
+    }
+
+    /**
+     * Returns the metrics of all operations called so far, by name.
+     */
+    public List<OperationMetrics> getOperations() {
+        final List<OperationMetrics> list = new ArrayList<OperationMetrics>(operations.values());
+        Collections.sort(list, new Comparator<OperationMetrics>() {
+            public int compare(final OperationMetrics o1, final OperationMetrics o2) {
+                return o1.getName().compareTo(o2.getName());
+            }
+        });
+        return list;
+    }
+
+    /**
+     * Starts counting the SOAP messages of this thread.
+     */
+    public static void startCall() {
+        CALL.set(new long[4]);
+    }
+
+    /**
+     * Returns the milliseconds this thread has waited for the rate limit
+     * since {@link #startCall()}.
+     */
+    public static long getWaitTime() {
+        final long[] call = CALL.get();
+        return call != null ? call[WAIT_TIME] : 0;
+    }
+
+    /**
+     * Stops counting and returns the values counted since
+     * {@link #startCall()}, see {@link #BYTES_IN} and the following indexes.
+     */
+    public static long[] endCall() {
+        final long[] call = CALL.get();
+        CALL.remove();
+        return call != null ? call : new long[4];
+    }
+
+    static boolean isCounting() {
+        return CALL.get() != null;
+    }
+
+    static void addBytes(final long in, final long out) {
+        final long[] call = CALL.get();
+        if (call != null) {
+            call[BYTES_IN] += in;
+            call[BYTES_OUT] += out;
+        }
+    }
+
+    static void addRequest() {
+        final long[] call = CALL.get();
+        if (call != null) {
+            call[REQUESTS]++;
+        }
+    }
+
+    static void addWaitTime(final long waited) {
+        final long[] call = CALL.get();
+        if (call != null) {
+            call[WAIT_TIME] += waited;
+        }
+    }
+
+    static ObjectName getObjectName(final OperationMetrics metrics) throws JMException {
+        return new ObjectName(JMX_DOMAIN + ":type=SoapOperation,site=" + ObjectName.quote(metrics.getSite())
+                + ",name=" + metrics.getName());
+    }
+
+    private static void register(final OperationMetrics metrics) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, getObjectName(metrics));
+        } catch (final JMException e) {
+            LOGGER.log(Level.FINE, "Failed to register MBean for " + metrics.getName(), e);
+        }
+    }
+
+    private static void unregister(final OperationMetrics metrics) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(getObjectName(metrics));
+        } catch (final JMException e) {
+            LOGGER.log(Level.FINE, "Failed to unregister MBean for " + metrics.getName(), e);
+        }
+    }
+
+    private static final Logger LOGGER = Logger.getLogger(MantisMetrics.class.getName());
+}
@@ -5,7 +5,9 @@ import hudson.plugins.mantis.model.MantisCategory;
 import hudson.plugins.mantis.model.MantisIssue;
 import hudson.plugins.mantis.model.MantisNote;
 import hudson.plugins.mantis.model.MantisProject;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  *
@@ -19,9 +21,26 @@ public interface MantisSession {
 
     MantisIssue getIssue(final int id) throws MantisHandlingException;
 
+    /**
+     * Returns the issues for the specified ids, keyed by id. Issues which
+     * Mantis refused to return are not contained in the result. If Mantis
+     * is not reachable, the exception is thrown instead.
+     */
+    Map<Integer, MantisIssue> getIssues(Collection<Integer> ids) throws MantisHandlingException;
+
     List<MantisProject> getProjects() throws MantisHandlingException;
     
     List<MantisCategory> getCategories(int projectId) throws MantisHandlingException;
     
     int addIssue(MantisIssue issue) throws MantisHandlingException;
+
+    /**
+     * Attaches a file to the issue and returns the id of the attachment.
+     */
+    int addAttachment(int id, String name, String fileType, byte[] content) throws MantisHandlingException;
+
+    /**
+     * Sets the timeout in milliseconds for the following calls.
+     */
+    void setTimeout(int timeout);
 }
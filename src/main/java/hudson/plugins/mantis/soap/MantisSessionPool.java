@@ -0,0 +1,313 @@
+package hudson.plugins.mantis.soap;
+
+import hudson.plugins.mantis.MantisHandlingException;
+import hudson.plugins.mantis.MantisSite;
+import hudson.plugins.mantis.MantisSite.MantisVersion;
+import java.util.LinkedList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Pool of idle {@link MantisSession}s for one Mantis site.
+ *
+ * Creating a session builds a new Axis engine, so sessions are kept and
+ * reused. Pools are shared by all {@link MantisSite}s with the same URL,
+ * version and credentials.
+ */
+public final class MantisSessionPool {
+
+    /**
+     * max number of idle sessions kept per site.
+     */
+    private static final int MAX_IDLE = Integer.getInteger(MantisSessionPool.class.getName() + ".maxIdle", 8);
+
+    /**
+     * max number of calls in progress per site, 0 means unlimited.
+     */
+    private static final int MAX_IN_FLIGHT =
+            Integer.getInteger(MantisSessionPool.class.getName() + ".maxInFlight", 10);
+
+    /**
+     * max number of SOAP requests sent per second per site, 0 means unlimited.
+     */
+    private static final int RATE_LIMIT = Integer.getInteger(MantisSessionPool.class.getName() + ".rateLimit", 0);
+
+    /**
+     * number of SOAP requests which may be sent at once after an idle period.
+     */
+    private static final int RATE_BURST =
+            Integer.getInteger(MantisSessionPool.class.getName() + ".rateBurst", Math.max(RATE_LIMIT, 1));
+
+    private static final ConcurrentMap<Key, MantisSessionPool> POOLS = new ConcurrentHashMap<Key, MantisSessionPool>();
+
+    private final Key key;
+
+    private final LinkedList<MantisSession> idle = new LinkedList<MantisSession>();
+
+    private final AtomicLong hitCount = new AtomicLong();
+
+    private final AtomicLong missCount = new AtomicLong();
+
+    private final CircuitBreaker circuitBreaker;
+
+    /**
+     * permits for calls in progress, null if unlimited. Fair, so that
+     * callers are served in the order they arrive.
+     */
+    private final Semaphore inFlight = MAX_IN_FLIGHT > 0 ? new Semaphore(MAX_IN_FLIGHT, true) : null;
+
+    private final TokenBucket rateLimiter = RATE_LIMIT > 0 ? new TokenBucket(RATE_LIMIT, RATE_BURST) : null;
+
+    private final AtomicLong waitCount = new AtomicLong();
+
+    private final AtomicLong totalWaitTime = new AtomicLong();
+
+    private final AtomicLong maxWaitTime = new AtomicLong();
+
+    private MantisSessionPool(final Key key) {
+        this.key = key;
+        this.circuitBreaker = new CircuitBreaker(key.url);
+    }
+
+    /**
+     * Returns the pool for the specified site.
+     */
+    public static MantisSessionPool get(final MantisSite site) {
+        final Key key = new Key(site);
+        MantisSessionPool pool = POOLS.get(key);
+        if (pool == null) {
+            final MantisSessionPool newPool = new MantisSessionPool(key);
+            pool = POOLS.putIfAbsent(key, newPool);
+            if (pool == null) {
+                pool = newPool;
+            }
+        }
+        return pool;
+    }
+
+    /**
+     * Discards all pooled sessions. Called when the global configuration has
+     * been changed.
+     */
+    public static void invalidateAll() {
+        for (final MantisSessionPool pool : POOLS.values()) {
+            pool.clear();
+        }
+        POOLS.clear();
+        LOGGER.log(Level.FINE, "Mantis session pools invalidated.");
+    }
+
+    /**
+     * Takes an idle session, or creates a new one if none is available. The
+     * session must be given back by {@link #release(MantisSession)}.
+     *
+     * Waits while the site is at its in-flight limit. The rate limit is
+     * applied to each SOAP request by {@link RateLimitHandler}.
+     */
+    public MantisSession borrow(final MantisSite site) throws MantisHandlingException {
+        acquirePermit();
+        boolean borrowed = false;
+        try {
+            MantisSession session = null;
+            synchronized (idle) {
+                if (!idle.isEmpty()) {
+                    session = idle.removeFirst();
+                }
+            }
+            if (session != null) {
+                hitCount.incrementAndGet();
+            } else {
+                missCount.incrementAndGet();
+                session = MantisSessionFactory.getSession(site);
+            }
+            borrowed = true;
+            return session;
+        } finally {
+            if (!borrowed && inFlight != null) {
+                inFlight.release();
+            }
+        }
+    }
+
+    public void release(final MantisSession session) {
+        if (session == null) {
+            return;
+        }
+        if (inFlight != null) {
+            inFlight.release();
+        }
+        synchronized (idle) {
+            if (idle.size() < MAX_IDLE) {
+                idle.addFirst(session);
+            }
+        }
+    }
+
+    private void acquirePermit() throws MantisHandlingException {
+        if (inFlight == null) {
+            return;
+        }
+        final long start = System.nanoTime();
+        try {
+            inFlight.acquire();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MantisHandlingException(e);
+        }
+        recordWait(start);
+    }
+
+    /**
+     * Waits for a token of the rate limit. Called for each SOAP request, so
+     * an operation sending several requests takes several tokens.
+     */
+    void acquireToken() throws InterruptedException {
+        if (rateLimiter == null) {
+            return;
+        }
+        final long start = System.nanoTime();
+        final long wait = rateLimiter.reserve();
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+        MantisMetrics.addWaitTime(recordWait(start));
+    }
+
+    private long recordWait(final long start) {
+        final long waited = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        if (waited > 0) {
+            waitCount.incrementAndGet();
+            totalWaitTime.addAndGet(waited);
+            long max;
+            do {
+                max = maxWaitTime.get();
+            } while (waited > max && !maxWaitTime.compareAndSet(max, waited));
+            LOGGER.log(Level.FINER, "Waited {0} ms for a call to {1}", new Object[] { waited, key.url });
+        }
+        return waited;
+    }
+
+    public void clear() {
+        synchronized (idle) {
+            idle.clear();
+        }
+    }
+
+    public int getIdleCount() {
+        synchronized (idle) {
+            return idle.size();
+        }
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public String getName() {
+        return key.url;
+    }
+
+    /**
+     * Returns the number of times calls had to wait for the rate or
+     * in-flight limit.
+     */
+    public long getWaitCount() {
+        return waitCount.get();
+    }
+
+    /**
+     * Returns the total time in milliseconds calls waited for the limits.
+     */
+    public long getTotalWaitTime() {
+        return totalWaitTime.get();
+    }
+
+    public long getMaxWaitTime() {
+        return maxWaitTime.get();
+    }
+
+    /**
+     * Returns the number of calls in progress, or -1 if unlimited.
+     */
+    public int getInFlightCount() {
+        return inFlight != null ? MAX_IN_FLIGHT - inFlight.availablePermits() : -1;
+    }
+
+    /**
+     * Returns the number of callers waiting for the in-flight limit.
+     */
+    public int getQueueLength() {
+        return inFlight != null ? inFlight.getQueueLength() : 0;
+    }
+
+    /**
+     * Returns the circuit breaker guarding calls to the site.
+     */
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /**
+     * Identity of a pool: URL, version and credentials of the site.
+     */
+    private static final class Key {
+
+        private final String url;
+
+        private final MantisVersion version;
+
+        private final String userName;
+
+        private final String password;
+
+        private final String basicUserName;
+
+        private final String basicPassword;
+
+        Key(final MantisSite site) {
+            this.url = site.getUrl().toExternalForm();
+            this.version = site.getVersion();
+            this.userName = site.getUserName();
+            this.password = site.getPlainPassword();
+            this.basicUserName = site.getBasicUserName();
+            this.basicPassword = site.getPlainBasicPassword();
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) obj;
+            return url.equals(other.url) && version == other.version && eq(userName, other.userName)
+                    && eq(password, other.password) && eq(basicUserName, other.basicUserName)
+                    && eq(basicPassword, other.basicPassword);
+        }
+
+        @Override
+        public int hashCode() {
+            int h = url.hashCode();
+            h = 31 * h + (version != null ? version.hashCode() : 0);
+            h = 31 * h + (userName != null ? userName.hashCode() : 0);
+            return h;
+        }
+
+        private static boolean eq(final String a, final String b) {
+            return a == null ? b == null : a.equals(b);
+        }
+    }
+
+    private static final Logger LOGGER = Logger.getLogger(MantisSessionPool.class.getName());
+}
@@ -0,0 +1,42 @@
+package hudson.plugins.mantis.soap;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.apache.axis.AxisFault;
+import org.apache.axis.Message;
+import org.apache.axis.MessageContext;
+import org.apache.axis.handlers.BasicHandler;
+
+/**
+ * Counts the SOAP requests and the bytes of requests and responses for
+ * {@link MantisMetrics}.
+ */
+public class MetricsHandler extends BasicHandler {
+
+    private static final long serialVersionUID = 1L;
+
+    public void invoke(final MessageContext ctx) throws AxisFault {
+        if (ctx == null || !MantisMetrics.isCounting()) {
+            return;
+        }
+        try {
+            if (ctx.getPastPivot()) {
+                final Message res = ctx.getResponseMessage();
+                if (res != null) {
+                    MantisMetrics.addBytes(res.getContentLength(), 0);
+                }
+            } else {
+                MantisMetrics.addRequest();
+                final Message req = ctx.getRequestMessage();
+                if (req != null) {
+                    MantisMetrics.addBytes(0, req.getContentLength());
+                }
+            }
+        } catch (final AxisFault e) {
+            // metrics must not break the call
+            LOGGER.log(Level.FINE, "Failed to get the message size.", e);
+        }
+    }
+
+    private static final Logger LOGGER = Logger.getLogger(MetricsHandler.class.getName());
+}
@@ -0,0 +1,180 @@
+package hudson.plugins.mantis.soap;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counters and timers of one SOAP operation on one site.
+ *
+ * Latency is the time Mantis took to answer; wait time is the time spent
+ * in this controller waiting for the rate and in-flight limits. A growing
+ * wait time with a stable latency means that the limits, not Mantis, are
+ * the bottleneck.
+ *
+ * A call may send several SOAP requests, e.g. to look up many issues.
+ */
+public final class OperationMetrics implements OperationMetricsMBean {
+
+    /**
+     * upper bounds in milliseconds of the latency histogram buckets. The
+     * last bucket counts everything slower.
+     */
+    private static final long[] BUCKETS = { 10, 50, 100, 250, 500, 1000, 2500, 5000, 10000 };
+
+    private final String site;
+
+    private final String name;
+
+    private final AtomicLong count = new AtomicLong();
+
+    private final AtomicLong requestCount = new AtomicLong();
+
+    private final AtomicLong errorCount = new AtomicLong();
+
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    private final AtomicLong totalLatency = new AtomicLong();
+
+    private final AtomicLong maxLatency = new AtomicLong();
+
+    private final AtomicLong totalWaitTime = new AtomicLong();
+
+    private final AtomicLong bytesIn = new AtomicLong();
+
+    private final AtomicLong bytesOut = new AtomicLong();
+
+    private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS.length + 1);
+
+    OperationMetrics(final String site, final String name) {
+        this.site = site;
+        this.name = name;
+    }
+
+    /**
+     * Records a completed call.
+     */
+    public void record(final long waitTime, final long latency, final boolean error, final long requests,
+            final long in, final long out) {
+        count.incrementAndGet();
+        requestCount.addAndGet(requests);
+        if (error) {
+            errorCount.incrementAndGet();
+        }
+        totalWaitTime.addAndGet(waitTime);
+        totalLatency.addAndGet(latency);
+        long max;
+        do {
+            max = maxLatency.get();
+        } while (latency > max && !maxLatency.compareAndSet(max, latency));
+        histogram.incrementAndGet(bucketOf(latency));
+        bytesIn.addAndGet(in);
+        bytesOut.addAndGet(out);
+    }
+
+    /**
+     * Records a call refused without calling Mantis, e.g. by the circuit
+     * breaker.
+     */
+    public void recordRejected() {
+        rejectedCount.incrementAndGet();
+    }
+
+    private static int bucketOf(final long latency) {
+        for (int i = 0; i < BUCKETS.length; i++) {
+            if (latency <= BUCKETS[i]) {
+                return i;
+            }
+        }
+        return BUCKETS.length;
+    }
+
+    public String getSite() {
+        return site;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    public long getErrorCount() {
+        return errorCount.get();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    public double getAverageLatency() {
+        final long n = count.get();
+        return n == 0 ? 0 : (double) totalLatency.get() / n;
+    }
+
+    public long getMaxLatency() {
+        return maxLatency.get();
+    }
+
+    /**
+     * Returns the upper bound of the histogram bucket holding the 99th
+     * percentile, or the max latency if it is in the last bucket.
+     */
+    public long getLatencyPercentile99() {
+        final long[] h = getLatencyHistogram();
+        long total = 0;
+        for (final long c : h) {
+            total += c;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        final long rank = (long) Math.ceil(total * 0.99);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS.length; i++) {
+            seen += h[i];
+            if (seen >= rank) {
+                return BUCKETS[i];
+            }
+        }
+        return getMaxLatency();
+    }
+
+    public double getAverageWaitTime() {
+        final long n = count.get();
+        return n == 0 ? 0 : (double) totalWaitTime.get() / n;
+    }
+
+    public long getBytesIn() {
+        return bytesIn.get();
+    }
+
+    public long getBytesOut() {
+        return bytesOut.get();
+    }
+
+    public long[] getLatencyHistogram() {
+        final long[] h = new long[histogram.length()];
+        for (int i = 0; i < h.length; i++) {
+            h[i] = histogram.get(i);
+        }
+        return h;
+    }
+
+    /**
+     * Returns the labels of the histogram buckets, e.g. "&lt;= 10 ms".
+     */
+    public static String[] getBucketLabels() {
+        final String[] labels = new String[BUCKETS.length + 1];
+        for (int i = 0; i < BUCKETS.length; i++) {
+            labels[i] = "<= " + BUCKETS[i] + " ms";
+        }
+        labels[BUCKETS.length] = "> " + BUCKETS[BUCKETS.length - 1] + " ms";
+        return labels;
+    }
+}
@@ -0,0 +1,33 @@
+package hudson.plugins.mantis.soap;
+
+/**
+ * JMX view of {@link OperationMetrics}.
+ */
+public interface OperationMetricsMBean {
+
+    String getSite();
+
+    String getName();
+
+    long getCount();
+
+    long getRequestCount();
+
+    long getErrorCount();
+
+    long getRejectedCount();
+
+    double getAverageLatency();
+
+    long getMaxLatency();
+
+    long getLatencyPercentile99();
+
+    double getAverageWaitTime();
+
+    long getBytesIn();
+
+    long getBytesOut();
+
+    long[] getLatencyHistogram();
+}
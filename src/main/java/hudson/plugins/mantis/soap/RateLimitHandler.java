@@ -0,0 +1,34 @@
+package hudson.plugins.mantis.soap;
+
+import org.apache.axis.AxisFault;
+import org.apache.axis.MessageContext;
+import org.apache.axis.handlers.BasicHandler;
+
+/**
+ * Waits for the rate limit of the site before each SOAP request.
+ *
+ * Applied per request rather than per call, as a call such as looking up
+ * many issues may send several requests.
+ */
+public class RateLimitHandler extends BasicHandler {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient MantisSessionPool pool;
+
+    public RateLimitHandler(final MantisSessionPool pool) {
+        this.pool = pool;
+    }
+
+    public void invoke(final MessageContext ctx) throws AxisFault {
+        if (pool == null || ctx == null || ctx.getPastPivot()) {
+            return;
+        }
+        try {
+            pool.acquireToken();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw AxisFault.makeFault(e);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package hudson.plugins.mantis.soap;
+
+/**
+ * Token bucket limiting the rate of calls.
+ *
+ * Tokens are reserved in the order callers arrive; a caller which finds
+ * the bucket empty is told how long to wait for its token, so waiting
+ * callers are served first come, first served.
+ */
+final class TokenBucket {
+
+    private final double tokensPerNano;
+
+    private final double capacity;
+
+    private double tokens;
+
+    private long lastRefill;
+
+    /**
+     * @param rate tokens added per second
+     * @param burst max number of tokens saved up
+     */
+    TokenBucket(final double rate, final int burst) {
+        this.tokensPerNano = rate / 1000000000d;
+        this.capacity = Math.max(1, burst);
+        this.tokens = capacity;
+        this.lastRefill = System.nanoTime();
+    }
+
+    /**
+     * Takes a token and returns the nanoseconds the caller must wait before
+     * using it.
+     */
+    synchronized long reserve() {
+        final long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+        lastRefill = now;
+        tokens -= 1;
+        if (tokens >= 0) {
+            return 0;
+        }
+        return (long) Math.ceil(-tokens / tokensPerNano);
+    }
+}
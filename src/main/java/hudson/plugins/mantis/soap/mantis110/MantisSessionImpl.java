@@ -65,7 +65,9 @@ public final class MantisSessionImpl extends AbstractMantisSession {
             throw new MantisHandlingException(e);
         }
 
-        return new MantisIssue(id, data.getSummary());
+        final ObjectRef status = data.getStatus();
+        return new MantisIssue(id, data.getSummary(),
+                status != null ? status.getId().intValue() : MantisIssue.UNKNOWN_STATUS);
     }
 
     public void addNote(final int id, final MantisNote note)
@@ -164,5 +166,21 @@ public final class MantisSessionImpl extends AbstractMantisSession {
         return addedIssueNo.intValue();
     }
 
+    public int addAttachment(int id, String name, String fileType, byte[] content)
+            throws MantisHandlingException {
+        BigInteger attachmentId;
+        try {
+            attachmentId = portType.mc_issue_attachment_add(site.getUserName(), site.getPlainPassword(),
+                    BigInteger.valueOf(id), name, fileType, content);
+        } catch (final RemoteException e) {
+            throw new MantisHandlingException(e);
+        }
+        return attachmentId.intValue();
+    }
+
+    public void setTimeout(int timeout) {
+        ((Stub) portType).setTimeout(timeout);
+    }
+
     private static final Logger LOGGER = Logger.getLogger(MantisSessionImpl.class.getName());
 }
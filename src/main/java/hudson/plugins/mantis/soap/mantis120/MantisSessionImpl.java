@@ -12,7 +12,13 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.rmi.RemoteException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.logging.Logger;
 import javax.xml.rpc.ServiceException;
 import org.apache.axis.AxisProperties;
@@ -22,6 +28,23 @@ import org.apache.axis.client.Stub;
 
 public final class MantisSessionImpl extends AbstractMantisSession {
 
+    /**
+     * project id meaning all projects.
+     */
+    private static final int ALL_PROJECTS = 0;
+
+    /**
+     * issue headers are used if at least this number of issues are requested.
+     */
+    private static final int MIN_BATCH_SIZE =
+            Integer.getInteger(MantisSessionImpl.class.getName() + ".minBatchSize", 10);
+
+    private static final int HEADERS_PER_PAGE =
+            Integer.getInteger(MantisSessionImpl.class.getName() + ".headersPerPage", 100);
+
+    private static final int MAX_HEADER_PAGES =
+            Integer.getInteger(MantisSessionImpl.class.getName() + ".maxHeaderPages", 5);
+
     private final MantisConnectPortType portType;
 
     public MantisSessionImpl(final MantisSite site) throws MantisHandlingException {
@@ -64,7 +87,66 @@ public final class MantisSessionImpl extends AbstractMantisSession {
             throw new MantisHandlingException(e);
         }
 
-        return new MantisIssue(id, data.getSummary());
+        final ObjectRef status = data.getStatus();
+        return new MantisIssue(id, data.getSummary(),
+                status != null ? status.getId().intValue() : MantisIssue.UNKNOWN_STATUS);
+    }
+
+    /**
+     * Reads issue headers of all projects, most recently updated first, until
+     * all ids are found, a page contains none of them or
+     * {@link #MAX_HEADER_PAGES} pages have been read. The rest are retrieved
+     * one by one. Paging stops as soon as it would cost more requests than
+     * retrieving the rest one by one.
+     */
+    @Override
+    public Map<Integer, MantisIssue> getIssues(final Collection<Integer> ids) throws MantisHandlingException {
+        final Set<Integer> remaining = new HashSet<Integer>(ids);
+        final Map<Integer, MantisIssue> found = new HashMap<Integer, MantisIssue>();
+
+        if (remaining.size() >= MIN_BATCH_SIZE) {
+            BigInteger firstId = null;
+            for (int page = 1; page <= MAX_HEADER_PAGES && page <= remaining.size(); page++) {
+                IssueHeaderData[] headers;
+                try {
+                    headers = portType.mc_project_get_issue_headers(site.getUserName(), site.getPlainPassword(),
+                            BigInteger.valueOf(ALL_PROJECTS), BigInteger.valueOf(page),
+                            BigInteger.valueOf(HEADERS_PER_PAGE));
+                } catch (final RemoteException e) {
+                    throw new MantisHandlingException(e);
+                }
+                if (headers == null || headers.length == 0) {
+                    break;
+                }
+                // Mantis returns the last page again if page_number is too large
+                if (headers[0].getId().equals(firstId)) {
+                    break;
+                }
+                firstId = headers[0].getId();
+                int hits = 0;
+                for (final IssueHeaderData header : headers) {
+                    final Integer id = header.getId().intValue();
+                    if (remaining.remove(id)) {
+                        found.put(id, new MantisIssue(id, header.getSummary(), header.getStatus().intValue()));
+                        hits++;
+                    }
+                }
+                // the rest have not been updated recently, or are in no page at all
+                if (hits == 0 || headers.length < HEADERS_PER_PAGE) {
+                    break;
+                }
+            }
+        }
+        found.putAll(super.getIssues(remaining));
+
+        final Map<Integer, MantisIssue> issues = new LinkedHashMap<Integer, MantisIssue>();
+        for (final Integer id : ids) {
+            final MantisIssue issue = found.get(id);
+            if (issue != null) {
+                issues.put(id, issue);
+            }
+        }
+        return issues;
     }
 
     public void addNote(final int id, final MantisNote note)
@@ -163,5 +245,21 @@ public final class MantisSessionImpl extends AbstractMantisSession {
         return addedIssueNo.intValue();
     }
 
+    public int addAttachment(int id, String name, String fileType, byte[] content)
+            throws MantisHandlingException {
+        BigInteger attachmentId;
+        try {
+            attachmentId = portType.mc_issue_attachment_add(site.getUserName(), site.getPlainPassword(),
+                    BigInteger.valueOf(id), name, fileType, content);
+        } catch (final RemoteException e) {
+            throw new MantisHandlingException(e);
+        }
+        return attachmentId.intValue();
+    }
+
+    public void setTimeout(int timeout) {
+        ((Stub) portType).setTimeout(timeout);
+    }
+
     private static final Logger LOGGER = Logger.getLogger(MantisSessionImpl.class.getName());
 }
@@ -0,0 +1,78 @@
+/*
+ * Loads summaries of Mantis issues linked from changelogs and shows them as
+ * tooltips. Links are rendered by MantisLinkAnnotator with the issue id and
+ * the job URL as data attributes.
+ */
+(function () {
+    var MAX_IDS = 100;
+
+    function escapeHTML(s) {
+        return s.replace(/&/g, "&amp;").replace(/</g, "&lt;").replace(/>/g, "&gt;")
+                .replace(/"/g, "&quot;").replace(/'/g, "&#039;");
+    }
+
+    function setTooltip(link, summary) {
+        if (typeof applyTooltip == "function") {
+            applyTooltip(link, escapeHTML(summary));
+        } else {
+            link.title = summary;
+        }
+    }
+
+    function loadSummaries(job, ids, links) {
+        var xhr = new XMLHttpRequest();
+        xhr.open("GET", rootURL + "/" + job + "descriptorByName/hudson.plugins.mantis.MantisProjectProperty/issueSummaries?ids="
+                + ids.join(","), true);
+        xhr.onreadystatechange = function () {
+            if (xhr.readyState != 4 || xhr.status != 200) {
+                return;
+            }
+            var summaries = JSON.parse(xhr.responseText);
+            for (var i = 0; i < links.length; i++) {
+                var summary = summaries[links[i].getAttribute("data-mantis-issue")];
+                if (summary != null) {
+                    setTooltip(links[i], summary);
+                }
+            }
+        };
+        xhr.send(null);
+    }
+
+    function load() {
+        if (!document.querySelectorAll) {
+            return;
+        }
+        var links = document.querySelectorAll("a[data-mantis-issue]");
+        var jobs = {};
+        for (var i = 0; i < links.length; i++) {
+            var job = links[i].getAttribute("data-mantis-job");
+            var id = links[i].getAttribute("data-mantis-issue");
+            var j = jobs[job] || (jobs[job] = { ids: [], links: {} });
+            if (!j.links[id]) {
+                j.links[id] = [];
+                j.ids.push(id);
+            }
+            j.links[id].push(links[i]);
+        }
+        for (var name in jobs) {
+            if (!jobs.hasOwnProperty(name)) {
+                continue;
+            }
+            var ids = jobs[name].ids;
+            for (var k = 0; k < ids.length; k += MAX_IDS) {
+                var chunk = ids.slice(k, k + MAX_IDS);
+                var chunkLinks = [];
+                for (var m = 0; m < chunk.length; m++) {
+                    chunkLinks = chunkLinks.concat(jobs[name].links[chunk[m]]);
+                }
+                loadSummaries(name, chunk, chunkLinks);
+            }
+        }
+    }
+
+    if (window.addEventListener) {
+        window.addEventListener("load", load, false);
+    } else if (window.attachEvent) {
+        window.attachEvent("onload", load);
+    }
+})();
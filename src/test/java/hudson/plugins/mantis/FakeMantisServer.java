@@ -0,0 +1,195 @@
+package hudson.plugins.mantis;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringEscapeUtils;
+
+/**
+ * MantisConnect 1.2 endpoint for tests. Issues are known once their status
+ * is set; other issues are answered with a SOAP fault, as Mantis does.
+ *
+ * Supports mc_issue_get, mc_issue_note_add and mc_issue_add, and records
+ * the operations called and the notes added. mc_project_get_issue_headers
+ * returns no headers, so issues are looked up one by one.
+ */
+public final class FakeMantisServer {
+
+    private static final Pattern OPERATION = Pattern.compile("<(?:\\w+:)?(mc_\\w+)[ >]");
+
+    private static final Pattern ISSUE_ID = Pattern.compile("<issue_id[^>]*>(\\d+)</issue_id>");
+
+    private static final Pattern NOTE_TEXT = Pattern.compile("<text[^>]*>(.*?)</text>", Pattern.DOTALL);
+
+    private static final String ENVELOPE_HEAD = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+            + "<SOAP-ENV:Envelope xmlns:SOAP-ENV=\"http://schemas.xmlsoap.org/soap/envelope/\""
+            + " xmlns:SOAP-ENC=\"http://schemas.xmlsoap.org/soap/encoding/\""
+            + " xmlns:xsd=\"http://www.w3.org/2001/XMLSchema\""
+            + " xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\""
+            + " xmlns:tns=\"http://futureware.biz/mantisconnect\""
+            + " SOAP-ENV:encodingStyle=\"http://schemas.xmlsoap.org/soap/encoding/\"><SOAP-ENV:Body>";
+
+    private static final String ENVELOPE_TAIL = "</SOAP-ENV:Body></SOAP-ENV:Envelope>";
+
+    private final HttpServer server;
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    private final Map<Integer, Integer> statuses = new ConcurrentHashMap<Integer, Integer>();
+
+    private final List<String> calls = Collections.synchronizedList(new ArrayList<String>());
+
+    private final List<String> notes = Collections.synchronizedList(new ArrayList<String>());
+
+    private final Set<InetSocketAddress> clients = Collections.synchronizedSet(new HashSet<InetSocketAddress>());
+
+    private final AtomicInteger nextIssueId = new AtomicInteger(100);
+
+    public FakeMantisServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/mantis/api/soap/mantisconnect.php", new SoapHandler());
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    public URL getUrl() throws MalformedURLException {
+        return new URL("http://localhost:" + server.getAddress().getPort() + "/mantis/");
+    }
+
+    public void setStatus(final int id, final int status) {
+        statuses.put(id, status);
+    }
+
+    /**
+     * Returns the operations called so far, e.g. "mc_issue_note_add #100".
+     */
+    public List<String> getCalls() {
+        synchronized (calls) {
+            return new ArrayList<String>(calls);
+        }
+    }
+
+    public void clearCalls() {
+        calls.clear();
+    }
+
+    /**
+     * Returns the text of the notes added so far.
+     */
+    public List<String> getNotes() {
+        synchronized (notes) {
+            return new ArrayList<String>(notes);
+        }
+    }
+
+    /**
+     * Returns the number of connections opened so far.
+     */
+    public int getConnectionCount() {
+        return clients.size();
+    }
+
+    private String respond(final String request) throws Fault {
+        final Matcher op = OPERATION.matcher(request);
+        final String operation = op.find() ? op.group(1) : "";
+        final Matcher m = ISSUE_ID.matcher(request);
+        final int id = m.find() ? Integer.parseInt(m.group(1)) : 0;
+
+        final StringBuilder body = new StringBuilder();
+        body.append("<ns1:").append(operation).append("Response xmlns:ns1=\"http://futureware.biz/mantisconnect\">");
+        if ("mc_project_get_issue_headers".equals(operation)) {
+            calls.add(operation);
+            body.append("<return xsi:type=\"SOAP-ENC:Array\" SOAP-ENC:arrayType=\"tns:IssueHeaderData[0]\"/>");
+        } else if ("mc_issue_add".equals(operation)) {
+            final int added = nextIssueId.getAndIncrement();
+            statuses.put(added, 10);
+            calls.add(operation + " #" + added);
+            body.append("<return xsi:type=\"xsd:integer\">").append(added).append("</return>");
+        } else {
+            calls.add(operation + " #" + id);
+            final Integer status = statuses.get(id);
+            if (status == null) {
+                throw new Fault("Issue #" + id + " not found.");
+            }
+            if ("mc_issue_note_add".equals(operation)) {
+                final Matcher text = NOTE_TEXT.matcher(request);
+                notes.add(text.find() ? StringEscapeUtils.unescapeXml(text.group(1)) : "");
+                body.append("<return xsi:type=\"xsd:integer\">1</return>");
+            } else {
+                body.append("<return xsi:type=\"tns:IssueData\">");
+                body.append("<id xsi:type=\"xsd:integer\">").append(id).append("</id>");
+                body.append("<status xsi:type=\"tns:ObjectRef\"><id xsi:type=\"xsd:integer\">").append(status);
+                body.append("</id><name xsi:type=\"xsd:string\">status</name></status>");
+                body.append("<summary xsi:type=\"xsd:string\">summary of issue ").append(id).append("</summary>");
+                body.append("</return>");
+            }
+        }
+        body.append("</ns1:").append(operation).append("Response>");
+        return body.toString();
+    }
+
+    private static final class Fault extends Exception {
+
+        private static final long serialVersionUID = 1L;
+
+        Fault(final String message) {
+            super(message);
+        }
+    }
+
+    private final class SoapHandler implements HttpHandler {
+
+        public void handle(final HttpExchange exchange) throws IOException {
+            clients.add(exchange.getRemoteAddress());
+            final InputStream in = exchange.getRequestBody();
+            final String request;
+            try {
+                request = IOUtils.toString(in, "UTF-8");
+            } finally {
+                in.close();
+            }
+            int code = 200;
+            String body;
+            try {
+                body = respond(request);
+            } catch (final Fault e) {
+                code = 500;
+                body = "<SOAP-ENV:Fault><faultcode>SOAP-ENV:Server</faultcode><faultstring>" + e.getMessage()
+                        + "</faultstring></SOAP-ENV:Fault>";
+            }
+            final byte[] response = (ENVELOPE_HEAD + body + ENVELOPE_TAIL).getBytes("UTF-8");
+            exchange.getResponseHeaders().set("Content-Type", "text/xml; charset=utf-8");
+            exchange.sendResponseHeaders(code, response.length);
+            final OutputStream out = exchange.getResponseBody();
+            try {
+                out.write(response);
+            } finally {
+                out.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package hudson.plugins.mantis;
+
+import hudson.plugins.mantis.model.MantisIssue;
+import hudson.util.XStream2;
+import java.util.regex.Pattern;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import org.junit.Test;
+
+public class MantisBuildActionTest {
+
+    @Test
+    public void testGetIssue() {
+        MantisBuildAction action = new MantisBuildAction(null, new MantisIssue[] {
+            new MantisIssue(30, "third"), new MantisIssue(10, "first"), new MantisIssue(20, "second"),
+            new MantisIssue(10, "duplicate")
+        });
+
+        assertEquals("first", action.getIssue(10).getSummary());
+        assertEquals("second", action.getIssue(20).getSummary());
+        assertEquals("third", action.getIssue(30).getSummary());
+        assertNull(action.getIssue(15));
+
+        MantisIssue[] issues = action.getIssues();
+        assertEquals(3, issues.length);
+        assertEquals(10, issues[0].getId());
+        assertEquals(30, issues[2].getId());
+    }
+
+    @Test
+    public void testSummariesAreShared() {
+        MantisBuildAction a1 = new MantisBuildAction(null, new MantisIssue[] { new MantisIssue(1, new String("s")) });
+        MantisBuildAction a2 = new MantisBuildAction(null, new MantisIssue[] { new MantisIssue(1, new String("s")) });
+        assertSame(a1.getIssue(1).getSummary(), a2.getIssue(1).getSummary());
+    }
+
+    @Test
+    public void testReadOldFormat() {
+        String xml = "<hudson.plugins.mantis.MantisBuildAction>"
+                + "<issues>"
+                + "<hudson.plugins.mantis.model.MantisIssue><id>2</id><summary>second</summary></hudson.plugins.mantis.model.MantisIssue>"
+                + "<hudson.plugins.mantis.model.MantisIssue><id>1</id><summary>first</summary></hudson.plugins.mantis.model.MantisIssue>"
+                + "</issues>"
+                + "<pattern><pattern>(?&lt;=#)(\\d+)</pattern><flags>0</flags></pattern>"
+                + "</hudson.plugins.mantis.MantisBuildAction>";
+        XStream2 xs = new XStream2();
+        MantisBuildAction action = (MantisBuildAction) xs.fromXML(xml);
+
+        assertEquals("first", action.getIssue(1).getSummary());
+        assertEquals("second", action.getIssue(2).getSummary());
+        assertEquals("(?<=#)(\\d+)", action.getPattern().pattern());
+
+        String saved = xs.toXML(action);
+        assertFalse(saved.contains("MantisIssue"));
+        assertFalse(saved.contains("<flags>"));
+        MantisBuildAction reloaded = (MantisBuildAction) xs.fromXML(saved);
+        assertEquals("second", reloaded.getIssue(2).getSummary());
+        assertSame(action.getPattern(), reloaded.getPattern());
+    }
+
+    @Test
+    public void testPatternIsShared() {
+        MantisBuildAction a1 = new MantisBuildAction(Pattern.compile("#(\\d+)"), new MantisIssue[0]);
+        MantisBuildAction a2 = new MantisBuildAction(Pattern.compile("#(\\d+)"), new MantisIssue[0]);
+        assertSame(a1.getPattern(), a2.getPattern());
+        assertNull(new MantisBuildAction(null, new MantisIssue[0]).getPattern());
+    }
+}
@@ -0,0 +1,68 @@
+package hudson.plugins.mantis;
+
+import hudson.plugins.mantis.changeset.ChangeSet;
+import hudson.plugins.mantis.changeset.CompatibleChangeSet;
+import hudson.plugins.mantis.changeset.DetachedChangeSet;
+import hudson.util.XStream2;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class MantisCarryOverChangeSetActionTest {
+
+    @Test
+    public void testDetach() {
+        MantisCarryOverChangeSetAction action = new MantisCarryOverChangeSetAction(
+                Arrays.<ChangeSet>asList(new CompatibleChangeSet(1)));
+        ChangeSet changeSet = action.getChangeSets().get(0);
+        assertTrue(changeSet instanceof DetachedChangeSet);
+        assertEquals(1, changeSet.getId());
+        assertEquals("", changeSet.createChangeLog());
+    }
+
+    @Test
+    public void testDuplicatesAreKeptOnce() {
+        List<ChangeSet> changeSets = new ArrayList<ChangeSet>();
+        changeSets.add(new DetachedChangeSet(1, new String("r1")));
+        changeSets.add(new DetachedChangeSet(2, new String("r1")));
+        changeSets.add(new DetachedChangeSet(1, new String("r1")));
+        MantisCarryOverChangeSetAction action = new MantisCarryOverChangeSetAction(changeSets);
+
+        List<ChangeSet> carried = action.getChangeSets();
+        assertEquals(2, carried.size());
+        assertSame(carried.get(0).createChangeLog(), carried.get(1).createChangeLog());
+    }
+
+    @Test
+    public void testLastChangeSetsAreKept() {
+        List<ChangeSet> changeSets = new ArrayList<ChangeSet>();
+        for (int i = 1; i <= 5; i++) {
+            changeSets.add(new DetachedChangeSet(i, "r" + i));
+        }
+        MantisCarryOverChangeSetAction action = new MantisCarryOverChangeSetAction(changeSets, 3);
+
+        List<ChangeSet> carried = action.getChangeSets();
+        assertEquals(3, carried.size());
+        assertEquals(3, carried.get(0).getId());
+        assertEquals(5, carried.get(2).getId());
+    }
+
+    @Test
+    public void testReadOldFormat() {
+        String xml = "<hudson.plugins.mantis.MantisCarryOverChangeSetAction>"
+                + "<changeSets>"
+                + "<hudson.plugins.mantis.changeset.CompatibleChangeSet><id>7</id></hudson.plugins.mantis.changeset.CompatibleChangeSet>"
+                + "</changeSets>"
+                + "</hudson.plugins.mantis.MantisCarryOverChangeSetAction>";
+        XStream2 xs = new XStream2();
+        MantisCarryOverChangeSetAction action = (MantisCarryOverChangeSetAction) xs.fromXML(xml);
+
+        assertEquals(7, action.getChangeSets().get(0).getId());
+        assertFalse(xs.toXML(action).contains("CompatibleChangeSet"));
+    }
+}
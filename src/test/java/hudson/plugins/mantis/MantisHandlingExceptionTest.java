@@ -0,0 +1,47 @@
+package hudson.plugins.mantis;
+
+import hudson.plugins.mantis.soap.CircuitOpenException;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import javax.xml.namespace.QName;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.apache.axis.AxisFault;
+import org.apache.axis.Constants;
+import org.junit.Test;
+
+public class MantisHandlingExceptionTest {
+
+    @Test
+    public void testServerFaultIsNotTransportFailure() {
+        AxisFault fault = new AxisFault(new QName(Constants.URI_SOAP11_ENV, "Server"),
+                "Issue #123 not found.", null, null);
+        assertFalse(new MantisHandlingException(fault).isTransportFailure());
+
+        AxisFault client = new AxisFault(new QName(Constants.URI_SOAP11_ENV, "Client"), "Access denied", null, null);
+        assertFalse(new MantisHandlingException(client).isTransportFailure());
+    }
+
+    @Test
+    public void testConnectionFailureIsTransportFailure() {
+        assertTrue(new MantisHandlingException(AxisFault.makeFault(new ConnectException("Connection refused")))
+                .isTransportFailure());
+        assertTrue(new MantisHandlingException(AxisFault.makeFault(new SocketTimeoutException("Read timed out")))
+                .isTransportFailure());
+        assertTrue(new MantisHandlingException(new CircuitOpenException("http://localhost/mantis/", "down"))
+                .isTransportFailure());
+    }
+
+    @Test
+    public void testHttpFaultIsTransportFailure() {
+        AxisFault fault = new AxisFault("HTTP", "(503)Service Unavailable", null, null);
+        assertTrue(new MantisHandlingException(fault).isTransportFailure());
+    }
+
+    @Test
+    public void testOtherFailures() {
+        assertFalse(new MantisHandlingException("project is missing.").isTransportFailure());
+        assertFalse(new MantisHandlingException(new IOException("disk full")).isTransportFailure());
+    }
+}
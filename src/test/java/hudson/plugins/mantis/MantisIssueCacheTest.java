@@ -0,0 +1,58 @@
+package hudson.plugins.mantis;
+
+import hudson.plugins.mantis.model.MantisIssue;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+public class MantisIssueCacheTest {
+
+    @Test
+    public void testGet() throws MantisHandlingException {
+        MantisIssueCache cache = new MantisIssueCache(10);
+        assertNull(cache.get(1));
+
+        cache.put(new MantisIssue(1, "summary"));
+        MantisIssueCache.CachedIssue cached = cache.get(1);
+        assertNotNull(cached);
+        assertEquals("summary", cached.getIssue().getSummary());
+
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void testMissing() {
+        MantisIssueCache cache = new MantisIssueCache(10);
+        cache.putMissing(2, "Issue does not exist.");
+
+        MantisIssueCache.CachedIssue cached = cache.get(2);
+        assertTrue(cached.isMissing());
+        assertNull(cache.peek(2));
+        try {
+            cached.getIssue();
+            fail();
+        } catch (MantisHandlingException e) {
+            assertEquals("Issue does not exist.", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testEviction() {
+        MantisIssueCache cache = new MantisIssueCache(2);
+        cache.put(new MantisIssue(1, "one"));
+        cache.put(new MantisIssue(2, "two"));
+        // 1 is now the most recently used
+        cache.get(1);
+        cache.put(new MantisIssue(3, "three"));
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        assertNotNull(cache.peek(1));
+        assertNull(cache.peek(2));
+        assertNotNull(cache.peek(3));
+    }
+}
@@ -0,0 +1,126 @@
+package hudson.plugins.mantis;
+
+import hudson.Launcher;
+import hudson.console.ConsoleNote;
+import hudson.model.AbstractBuild;
+import hudson.model.BuildListener;
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+import hudson.model.Result;
+import hudson.plugins.mantis.model.MantisIssue;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.zip.GZIPInputStream;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.FailureBuilder;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.TestBuilder;
+
+public class MantisIssueRegisterTest {
+
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    private FakeMantisServer server;
+
+    private FreeStyleProject project;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new FakeMantisServer();
+        MantisSite site = new MantisSite(server.getUrl(), "V120", "test", "test", null, null);
+        MantisProjectProperty.DESCRIPTOR.addSite(site);
+
+        project = j.createFreeStyleProject();
+        project.addProperty(new MantisProjectProperty(site.getName(), 1, "General", null, null, false));
+        project.getBuildersList().add(new FailureBuilder());
+        project.getPublishersList().add(new MantisIssueRegister(MantisIssueRegister.FAILURE, false, false, true));
+    }
+
+    @After
+    public void tearDown() {
+        MantisProjectProperty.DESCRIPTOR.setUseOutbox(false);
+        server.stop();
+    }
+
+    @Test
+    public void testNoteIsAddedToOpenIssue() throws Exception {
+        FreeStyleBuild b1 = j.assertBuildStatus(Result.FAILURE, project.scheduleBuild2(0).get());
+        assertTrue(server.getCalls().contains("mc_issue_add #100"));
+        assertEquals(100, b1.getAction(MantisRegisterAction.class).getIssueNo());
+
+        server.clearCalls();
+        FreeStyleBuild b2 = j.assertBuildStatus(Result.FAILURE, project.scheduleBuild2(0).get());
+        assertTrue(server.getCalls().contains("mc_issue_note_add #100"));
+        assertFalse(server.getCalls().contains("mc_issue_add #101"));
+        assertEquals(100, b2.getAction(MantisRegisterAction.class).getIssueNo());
+    }
+
+    @Test
+    public void testNewIssueIsFiledWhenResolved() throws Exception {
+        j.assertBuildStatus(Result.FAILURE, project.scheduleBuild2(0).get());
+        j.assertBuildStatus(Result.FAILURE, project.scheduleBuild2(0).get());
+
+        // resolved in Mantis while the open status is still cached
+        server.setStatus(100, MantisIssue.RESOLVED_STATUS);
+        server.clearCalls();
+        FreeStyleBuild b3 = j.assertBuildStatus(Result.FAILURE, project.scheduleBuild2(0).get());
+        assertTrue(server.getCalls().contains("mc_issue_add #101"));
+        assertFalse(server.getCalls().contains("mc_issue_note_add #100"));
+        assertEquals(101, b3.getAction(MantisRegisterAction.class).getIssueNo());
+    }
+
+    @Test
+    public void testQueuedIssueBecomesNote() throws Exception {
+        MantisProjectProperty.DESCRIPTOR.setUseOutbox(true);
+        FreeStyleBuild b1 = j.assertBuildStatus(Result.FAILURE, project.scheduleBuild2(0).get());
+        FreeStyleBuild b2 = j.assertBuildStatus(Result.FAILURE, project.scheduleBuild2(0).get());
+
+        MantisOutbox.get().drain();
+        assertEquals(0, MantisOutbox.get().size());
+        assertEquals(1, Collections.frequency(server.getCalls(), "mc_issue_add #100"));
+        assertFalse(server.getCalls().contains("mc_issue_add #101"));
+        assertEquals(1, Collections.frequency(server.getCalls(), "mc_issue_note_add #100"));
+        assertEquals(100, b1.getAction(MantisRegisterAction.class).getIssueNo());
+        assertEquals(100, b2.getAction(MantisRegisterAction.class).getIssueNo());
+    }
+
+    @Test
+    public void testReportHasNoConsoleNotes() throws Exception {
+        FreeStyleProject p = j.createFreeStyleProject();
+        p.addProperty(new MantisProjectProperty(MantisProjectProperty.DESCRIPTOR.getSites()[0].getName(), 1,
+                "General", null, null, false));
+        p.getBuildersList().add(new TestBuilder() {
+            @Override
+            public boolean perform(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener)
+                    throws InterruptedException, IOException {
+                listener.hyperlink("http://example.com/", "see the details");
+                listener.getLogger().println();
+                return false;
+            }
+        });
+        p.getPublishersList().add(new MantisIssueRegister(MantisIssueRegister.FAILURE, false, true, false));
+        FreeStyleBuild b = j.assertBuildStatus(Result.FAILURE, p.scheduleBuild2(0).get());
+
+        File report = new File(b.getRootDir(), MantisIssueRegister.REPORT_FILE_NAME);
+        InputStream in = new GZIPInputStream(new FileInputStream(report));
+        String text;
+        try {
+            text = IOUtils.toString(in, "UTF-8");
+        } finally {
+            in.close();
+        }
+        assertTrue(text.contains("see the details"));
+        assertFalse(text.contains(ConsoleNote.PREAMBLE_STR));
+    }
+}
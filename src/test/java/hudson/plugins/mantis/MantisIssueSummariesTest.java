@@ -0,0 +1,109 @@
+package hudson.plugins.mantis;
+
+import com.gargoylesoftware.htmlunit.FailingHttpStatusCodeException;
+import hudson.model.FreeStyleProject;
+import hudson.model.Item;
+import hudson.security.GlobalMatrixAuthorizationStrategy;
+import java.util.ArrayList;
+import java.util.List;
+import jenkins.model.Jenkins;
+import net.sf.json.JSONObject;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.JenkinsRule.WebClient;
+
+public class MantisIssueSummariesTest {
+
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    private FakeMantisServer server;
+
+    private FreeStyleProject project;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new FakeMantisServer();
+        MantisSite site = new MantisSite(server.getUrl(), "V120", "test", "test", null, null);
+        MantisProjectProperty.DESCRIPTOR.addSite(site);
+
+        project = j.createFreeStyleProject();
+        project.addProperty(new MantisProjectProperty(site.getName(), 1, "General", null, null, true));
+    }
+
+    @After
+    public void tearDown() {
+        server.stop();
+    }
+
+    @Test
+    public void testSummaries() throws Exception {
+        server.setStatus(100, 10);
+        server.setStatus(101, 10);
+
+        JSONObject summaries = getSummaries(j.createWebClient(), "100,abc,, 101 ,999,100");
+        JSONObject expected = new JSONObject();
+        expected.put("100", "summary of issue 100");
+        expected.put("101", "summary of issue 101");
+        assertEquals(expected, summaries);
+    }
+
+    @Test
+    public void testNumberOfIssuesIsLimited() throws Exception {
+        StringBuilder ids = new StringBuilder();
+        for (int id = 1; id <= 150; id++) {
+            server.setStatus(id, 10);
+            ids.append(id).append(',');
+        }
+
+        JSONObject summaries = getSummaries(j.createWebClient(), ids.toString());
+        assertEquals(100, summaries.size());
+        List<String> lookups = new ArrayList<String>();
+        for (String call : server.getCalls()) {
+            if (call.startsWith("mc_issue_get ")) {
+                lookups.add(call);
+            }
+        }
+        assertEquals(100, lookups.size());
+        for (int id = 101; id <= 150; id++) {
+            assertFalse(summaries.has(String.valueOf(id)));
+            assertFalse(lookups.contains("mc_issue_get #" + id));
+        }
+    }
+
+    @Test
+    public void testReadPermissionIsRequired() throws Exception {
+        server.setStatus(100, 10);
+        j.jenkins.setSecurityRealm(j.createDummySecurityRealm());
+        GlobalMatrixAuthorizationStrategy auth = new GlobalMatrixAuthorizationStrategy();
+        auth.add(Jenkins.READ, "anonymous");
+        auth.add(Item.DISCOVER, "anonymous");
+        auth.add(Jenkins.READ, "alice");
+        auth.add(Item.READ, "alice");
+        j.jenkins.setAuthorizationStrategy(auth);
+
+        try {
+            getSummaries(j.createWebClient(), "100");
+            fail();
+        } catch (FailingHttpStatusCodeException e) {
+            assertEquals(403, e.getStatusCode());
+        }
+        assertTrue(server.getCalls().isEmpty());
+
+        WebClient wc = j.createWebClient().login("alice");
+        assertEquals("summary of issue 100", getSummaries(wc, "100").getString("100"));
+    }
+
+    private JSONObject getSummaries(final WebClient wc, final String ids) throws Exception {
+        String path = project.getUrl() + "descriptorByName/" + MantisProjectProperty.class.getName()
+                + "/issueSummaries?ids=" + ids;
+        return JSONObject.fromObject(wc.goTo(path, "application/json").getWebResponse().getContentAsString());
+    }
+}
@@ -0,0 +1,74 @@
+package hudson.plugins.mantis;
+
+import hudson.MarkupText;
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.apache.commons.lang.StringUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+public class MantisLinkAnnotatorTest {
+
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    private FakeMantisServer server;
+
+    private MantisSite site;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new FakeMantisServer();
+        server.setStatus(100, 10);
+        site = new MantisSite(server.getUrl(), "V120", "test", "test", null, null);
+        MantisProjectProperty.DESCRIPTOR.addSite(site);
+    }
+
+    @After
+    public void tearDown() {
+        MantisProjectProperty.DESCRIPTOR.setAsyncLinkTooltips(false);
+        server.stop();
+    }
+
+    @Test
+    public void testAsyncTooltip() throws Exception {
+        MantisProjectProperty.DESCRIPTOR.setAsyncLinkTooltips(true);
+        FreeStyleProject project = j.createFreeStyleProject("it's \"quoted\"");
+        project.addProperty(new MantisProjectProperty(site.getName(), 1, "General", null, null, true));
+        FreeStyleBuild build = j.buildAndAssertSuccess(project);
+
+        MarkupText text = new MarkupText("fixed issue #100");
+        new MantisLinkAnnotator().annotate(build, null, text);
+        String html = text.toString(false);
+
+        assertTrue(html, html.contains("data-mantis-issue='100'"));
+        assertTrue(html, html.contains("data-mantis-job='" + Utility.escape(project.getUrl()) + "'"));
+        // only the quotes around the three attribute values
+        String tag = html.substring(html.indexOf("<a "), html.indexOf('>') + 1);
+        assertEquals(6, StringUtils.countMatches(tag, "'"));
+        assertEquals(0, StringUtils.countMatches(tag, "\""));
+        assertFalse(html, html.contains("tooltip="));
+        // the summary is loaded by the browser
+        assertTrue(server.getCalls().isEmpty());
+    }
+
+    @Test
+    public void testTooltip() throws Exception {
+        FreeStyleProject project = j.createFreeStyleProject();
+        project.addProperty(new MantisProjectProperty(site.getName(), 1, "General", null, null, true));
+        FreeStyleBuild build = j.buildAndAssertSuccess(project);
+
+        MarkupText text = new MarkupText("fixed issue #100");
+        new MantisLinkAnnotator().annotate(build, null, text);
+        String html = text.toString(false);
+
+        assertTrue(html, html.contains("tooltip='summary of issue 100'"));
+        assertFalse(html, html.contains("data-mantis-issue"));
+    }
+}
@@ -0,0 +1,149 @@
+package hudson.plugins.mantis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import java.net.ConnectException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import javax.xml.namespace.QName;
+import org.apache.axis.AxisFault;
+import org.apache.axis.Constants;
+import org.junit.Test;
+
+public class MantisMetadataCacheTest {
+
+    private static final long HOUR = 3600 * 1000L;
+
+    private final List<Runnable> tasks = new ArrayList<Runnable>();
+
+    private final Executor executor = new Executor() {
+        public void execute(final Runnable command) {
+            tasks.add(command);
+        }
+    };
+
+    @Test
+    public void testFresh() throws MantisHandlingException {
+        MantisMetadataCache cache = new MantisMetadataCache(HOUR, HOUR, executor);
+        CountingLoader loader = new CountingLoader();
+
+        assertEquals("v1", cache.get("key", loader));
+        assertEquals("v1", cache.get("key", loader));
+        assertEquals(1, loader.count);
+        assertEquals(0, tasks.size());
+    }
+
+    @Test
+    public void testRefreshInBackground() throws MantisHandlingException {
+        MantisMetadataCache cache = new MantisMetadataCache(0, HOUR, executor);
+        CountingLoader loader = new CountingLoader();
+
+        assertEquals("v1", cache.get("key", loader));
+        // the old value is returned and one refresh is scheduled
+        assertEquals("v1", cache.get("key", loader));
+        assertEquals("v1", cache.get("key", loader));
+        assertEquals(1, tasks.size());
+
+        tasks.get(0).run();
+        assertEquals("v2", cache.get("key", loader));
+        assertEquals(2, loader.count);
+    }
+
+    @Test
+    public void testRefreshAfterRuntimeException() throws MantisHandlingException {
+        MantisMetadataCache cache = new MantisMetadataCache(0, HOUR, executor);
+        assertEquals("v1", cache.get("key", new CountingLoader()));
+
+        MantisMetadataCache.Loader<String> broken = new MantisMetadataCache.Loader<String>() {
+            public String load() {
+                throw new IllegalStateException("broken");
+            }
+        };
+        assertEquals("v1", cache.get("key", broken));
+        tasks.get(0).run();
+
+        // the failed refresh does not prevent the next one
+        assertEquals("v1", cache.get("key", broken));
+        assertEquals(2, tasks.size());
+    }
+
+    @Test
+    public void testRefreshAfterRejectedExecution() throws MantisHandlingException {
+        final boolean[] reject = { true };
+        MantisMetadataCache cache = new MantisMetadataCache(0, HOUR, new Executor() {
+            public void execute(final Runnable command) {
+                if (reject[0]) {
+                    throw new RejectedExecutionException();
+                }
+                tasks.add(command);
+            }
+        });
+        CountingLoader loader = new CountingLoader();
+        assertEquals("v1", cache.get("key", loader));
+        assertEquals("v1", cache.get("key", loader));
+
+        reject[0] = false;
+        assertEquals("v1", cache.get("key", loader));
+        assertEquals(1, tasks.size());
+    }
+
+    @Test
+    public void testExpired() throws MantisHandlingException {
+        MantisMetadataCache cache = new MantisMetadataCache(0, 0, executor);
+        CountingLoader loader = new CountingLoader();
+
+        assertEquals("v1", cache.get("key", loader));
+        assertEquals("v2", cache.get("key", loader));
+        assertEquals(0, tasks.size());
+    }
+
+    @Test
+    public void testExpiredWhenRejected() throws MantisHandlingException {
+        MantisMetadataCache cache = new MantisMetadataCache(0, 0, executor);
+        CountingLoader loader = new CountingLoader();
+        assertEquals("v1", cache.get("key", loader));
+
+        loader.failure = new MantisHandlingException(
+                new AxisFault(new QName(Constants.URI_SOAP11_ENV, "Server"), "Access denied", null, null));
+        try {
+            cache.get("key", loader);
+            fail();
+        } catch (MantisHandlingException e) {
+            assertEquals(loader.failure, e);
+        }
+    }
+
+    @Test
+    public void testExpiredWhenUnavailable() throws MantisHandlingException {
+        MantisMetadataCache cache = new MantisMetadataCache(0, 0, executor);
+        CountingLoader loader = new CountingLoader();
+        assertEquals("v1", cache.get("key", loader));
+
+        loader.failure = new MantisHandlingException(new ConnectException("Connection refused"));
+        assertEquals("v1", cache.get("key", loader));
+
+        cache.clear();
+        try {
+            cache.get("key", loader);
+            fail();
+        } catch (MantisHandlingException e) {
+            assertEquals(loader.failure, e);
+        }
+    }
+
+    private static class CountingLoader implements MantisMetadataCache.Loader<String> {
+
+        private int count;
+
+        private MantisHandlingException failure;
+
+        public String load() throws MantisHandlingException {
+            if (failure != null) {
+                throw failure;
+            }
+            return "v" + ++count;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package hudson.plugins.mantis;
+
+import java.io.File;
+import java.net.ConnectException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.xml.namespace.QName;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.apache.axis.AxisFault;
+import org.apache.axis.Constants;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+public class MantisOutboxTest {
+
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    @Test
+    public void testWritesArePersisted() throws Exception {
+        MantisSite site = new MantisSite(new URL("http://localhost/mantis/"), "V120", "test", "test", null, null);
+        MantisOutbox outbox = MantisOutbox.get();
+
+        outbox.addNote(site, 1, "first", false);
+        outbox.addNote(site, 2, "second", false);
+
+        assertEquals(2, outbox.size());
+        assertTrue(new File(j.jenkins.getRootDir(), "mantis/outbox").isDirectory());
+    }
+
+    @Test
+    public void testFailedWriteIsKeptForRetry() throws Exception {
+        // the site is not configured, so the write fails
+        MantisSite site = new MantisSite(new URL("http://localhost/mantis/"), "V120", "test", "test", null, null);
+        MantisOutbox outbox = MantisOutbox.get();
+        outbox.addNote(site, 1, "note", false);
+
+        outbox.drain();
+        assertEquals(1, outbox.size());
+
+        // not due yet
+        outbox.drain();
+        assertEquals(1, outbox.size());
+    }
+
+    @Test
+    public void testRejectedWriteDoesNotStopBatch() throws Exception {
+        MantisSite site = new MantisSite(new URL("http://localhost/rejecting/"), "V120", "test", "test", null, null);
+        MantisProjectProperty.DESCRIPTOR.addSite(site);
+        MantisOutbox outbox = MantisOutbox.get();
+        TestWrite.SENT.clear();
+
+        outbox.enqueue(new TestWrite(site, 1, TestWrite.REJECTED));
+        outbox.enqueue(new TestWrite(site, 2, TestWrite.OK));
+        outbox.drain();
+
+        assertEquals(Arrays.asList(1, 2), TestWrite.SENT);
+        assertEquals(1, outbox.size());
+    }
+
+    @Test
+    public void testTransportFailureStopsBatch() throws Exception {
+        MantisSite site = new MantisSite(new URL("http://localhost/down/"), "V120", "test", "test", null, null);
+        MantisProjectProperty.DESCRIPTOR.addSite(site);
+        MantisOutbox outbox = MantisOutbox.get();
+        TestWrite.SENT.clear();
+
+        outbox.enqueue(new TestWrite(site, 1, TestWrite.UNREACHABLE));
+        outbox.enqueue(new TestWrite(site, 2, TestWrite.OK));
+        outbox.drain();
+
+        assertEquals(Arrays.asList(1), TestWrite.SENT);
+        assertEquals(2, outbox.size());
+    }
+
+    private static final class TestWrite extends MantisOutbox.PendingWrite {
+
+        static final int OK = 0;
+
+        static final int REJECTED = 1;
+
+        static final int UNREACHABLE = 2;
+
+        static final List<Integer> SENT = new ArrayList<Integer>();
+
+        private final int no;
+
+        private final int outcome;
+
+        TestWrite(final MantisSite site, final int no, final int outcome) {
+            super(site);
+            this.no = no;
+            this.outcome = outcome;
+        }
+
+        @Override
+        void send(final MantisSite site) throws MantisHandlingException {
+            SENT.add(no);
+            if (outcome == REJECTED) {
+                throw new MantisHandlingException(new AxisFault(new QName(Constants.URI_SOAP11_ENV, "Server"),
+                        "Issue #" + no + " not found.", null, null));
+            }
+            if (outcome == UNREACHABLE) {
+                throw new MantisHandlingException(AxisFault.makeFault(new ConnectException("Connection refused")));
+            }
+        }
+    }
+}
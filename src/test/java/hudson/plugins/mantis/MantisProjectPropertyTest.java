@@ -0,0 +1,42 @@
+package hudson.plugins.mantis;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+public class MantisProjectPropertyTest {
+
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    @Test
+    public void testRegexpPatternIsShared() {
+        MantisProjectProperty p1 = new MantisProjectProperty("site", 0, null, null, null, true);
+        MantisProjectProperty p2 = new MantisProjectProperty("site", 0, null, null, null, true);
+        assertSame(p1.getRegexpPattern(), p2.getRegexpPattern());
+    }
+
+    @Test
+    public void testMayContainIssueId_DefaultPattern() {
+        MantisProjectProperty mpp = new MantisProjectProperty("site", 0, null, null, null, true);
+        assertTrue(mpp.mayContainIssueId("fixed issue #123"));
+        assertTrue(mpp.mayContainIssueId("fixed issue 123"));
+        assertFalse(mpp.mayContainIssueId("refactoring"));
+    }
+
+    @Test
+    public void testMayContainIssueId_Pattern() {
+        MantisProjectProperty mpp = new MantisProjectProperty("site", 0, null, "[ISSUE: %ID%]", null, true);
+        assertTrue(mpp.mayContainIssueId("[ISSUE: 123] fixed"));
+        assertFalse(mpp.mayContainIssueId("issue #123"));
+    }
+
+    @Test
+    public void testMayContainIssueId_Regex() {
+        MantisProjectProperty mpp = new MantisProjectProperty("site", 0, null, null, "#(\\d+)", true);
+        assertTrue(mpp.mayContainIssueId("refactoring"));
+    }
+}
@@ -0,0 +1,71 @@
+package hudson.plugins.mantis;
+
+import hudson.plugins.mantis.model.MantisIssue;
+import hudson.plugins.mantis.soap.OperationMetrics;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+public class MantisSiteGetIssuesTest {
+
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    private FakeMantisServer server;
+
+    private MantisSite site;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new FakeMantisServer();
+        server.setStatus(100, 10);
+        site = new MantisSite(server.getUrl(), "V120", "test", "test", null, null);
+    }
+
+    @After
+    public void tearDown() {
+        server.stop();
+    }
+
+    @Test
+    public void testRefusedIssueIsNotRetrievedAgain() throws Exception {
+        Map<Integer, MantisIssue> issues = site.getIssues(Arrays.asList(100, 999));
+        assertEquals(Collections.singleton(100), issues.keySet());
+        assertEquals(Arrays.asList("mc_issue_get #100", "mc_issue_get #999"), server.getCalls());
+
+        server.clearCalls();
+        try {
+            site.getIssue(999);
+            fail();
+        } catch (MantisHandlingException e) {
+            assertTrue(server.getCalls().isEmpty());
+        }
+    }
+
+    @Test
+    public void testEachRequestIsCounted() throws Exception {
+        site.getIssues(Arrays.asList(100, 999));
+        OperationMetrics metrics = site.getMetrics().getOperation("getIssues");
+        assertEquals(1, metrics.getCount());
+        assertEquals(2, metrics.getRequestCount());
+    }
+
+    @Test
+    public void testTransportFailureIsThrown() throws Exception {
+        server.stop();
+        try {
+            site.getIssues(Arrays.asList(100, 101, 102));
+            fail();
+        } catch (MantisHandlingException e) {
+            assertTrue(e.isTransportFailure());
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package hudson.plugins.mantis;
+
+import hudson.model.FreeStyleBuild;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+public class RunScmChangeExtractorTest {
+
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    @Test
+    public void testFindChanges() throws Exception {
+        FreeStyleBuild build = j.buildAndAssertSuccess(j.createFreeStyleProject());
+
+        assertTrue(RunScmChangeExtractor.findChanges(build).isPresent());
+        assertEquals(build.getChangeSets(), RunScmChangeExtractor.findChanges(build).get());
+        assertEquals(build.getChangeSets(), RunScmChangeExtractor.getChangesUsingReflection(build).get());
+    }
+}
@@ -0,0 +1,169 @@
+package hudson.plugins.mantis;
+
+import hudson.model.AbstractBuild;
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+import hudson.model.User;
+import hudson.scm.ChangeLogSet;
+import hudson.scm.ChangeLogSet.Entry;
+import hudson.util.StreamTaskListener;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+public class UpdaterTest {
+
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    private FakeMantisServer server;
+
+    private MantisSite site;
+
+    private FreeStyleProject project;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new FakeMantisServer();
+        site = new MantisSite(server.getUrl(), "V120", "test", "test", null, null);
+        MantisProjectProperty.DESCRIPTOR.addSite(site);
+
+        project = j.createFreeStyleProject();
+        project.addProperty(new MantisProjectProperty(site.getName(), 1, "General", null, null, false));
+    }
+
+    @After
+    public void tearDown() {
+        site.setNoteConcurrency(1);
+        server.stop();
+    }
+
+    @Test
+    public void testConcurrentNotesAreLoggedInOrder() throws Exception {
+        server.setStatus(100, 10);
+        server.setStatus(101, 10);
+        server.setStatus(102, 10);
+        site.setNoteConcurrency(3);
+
+        FreeStyleBuild build = j.buildAndAssertSuccess(project);
+        String log = update(build, "fixed issue #100", "fixed issue #999", "fixed issue #101", "fixed issue #102");
+
+        List<String> lines = new ArrayList<String>();
+        for (String line : log.split("\\r?\\n")) {
+            if (line.startsWith("[MANTIS] ")) {
+                lines.add(line);
+            }
+        }
+        assertEquals(4, lines.size());
+        assertEquals("[MANTIS] " + Messages.Updater_Updating(100), lines.get(0));
+        String failed = Messages.Updater_FailedToAddNote(999, "\u0000");
+        failed = failed.substring(0, failed.indexOf('\u0000'));
+        assertTrue(lines.get(1), lines.get(1).startsWith("[MANTIS] " + failed));
+        assertEquals("[MANTIS] " + Messages.Updater_Updating(101), lines.get(2));
+        assertEquals("[MANTIS] " + Messages.Updater_Updating(102), lines.get(3));
+
+        List<String> calls = server.getCalls();
+        assertTrue(calls.contains("mc_issue_note_add #100"));
+        assertTrue(calls.contains("mc_issue_note_add #101"));
+        assertTrue(calls.contains("mc_issue_note_add #102"));
+        assertEquals(0, Collections.frequency(calls, "mc_issue_note_add #999"));
+    }
+
+    @Test
+    public void testOneNoteForAllChangeSetsOfIssue() throws Exception {
+        server.setStatus(100, 10);
+
+        // carried over by a failed build, and built again
+        FreeStyleBuild failed = j.buildAndAssertSuccess(project);
+        failed.addAction(new MantisCarryOverChangeSetAction(Updater.findChangeSetsFromChangeLogSets(
+                changeSets(failed, "first fix of issue #100"), MantisProjectProperty.get(failed))));
+
+        FreeStyleBuild build = j.buildAndAssertSuccess(project);
+        server.clearCalls();
+        update(build, "first fix of issue #100", "second fix of issue #100", "issue #100 and issue #100 again");
+
+        assertEquals(Arrays.asList("mc_issue_get #100", "mc_issue_note_add #100"), server.getCalls());
+        String note = server.getNotes().get(0);
+        assertEquals(1, count(note, "first fix of issue #100"));
+        assertEquals(1, count(note, "second fix of issue #100"));
+        assertEquals(1, count(note, "issue #100 and issue #100 again"));
+    }
+
+    private static int count(final String text, final String s) {
+        int count = 0;
+        for (int i = text.indexOf(s); i >= 0; i = text.indexOf(s, i + 1)) {
+            count++;
+        }
+        return count;
+    }
+
+    private static List<ChangeLogSet<? extends Entry>> changeSets(final AbstractBuild<?, ?> build,
+            final String... messages) {
+        List<ChangeLogSet<? extends Entry>> changeSets = new ArrayList<ChangeLogSet<? extends Entry>>();
+        changeSets.add(new TestChangeLogSet(build, messages));
+        return changeSets;
+    }
+
+    private String update(final AbstractBuild<?, ?> build, final String... messages) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new Updater(changeSets(build, messages), false, true).perform(build, new StreamTaskListener(out));
+        return out.toString();
+    }
+
+    private static final class TestChangeLogSet extends ChangeLogSet<TestEntry> {
+
+        private final List<TestEntry> entries = new ArrayList<TestEntry>();
+
+        TestChangeLogSet(final AbstractBuild<?, ?> build, final String... messages) {
+            super(build);
+            for (final String message : messages) {
+                entries.add(new TestEntry(this, message));
+            }
+        }
+
+        @Override
+        public boolean isEmptySet() {
+            return entries.isEmpty();
+        }
+
+        public Iterator<TestEntry> iterator() {
+            return entries.iterator();
+        }
+    }
+
+    private static final class TestEntry extends ChangeLogSet.Entry {
+
+        private final String msg;
+
+        TestEntry(final TestChangeLogSet parent, final String msg) {
+            this.msg = msg;
+            setParent(parent);
+        }
+
+        @Override
+        public String getMsg() {
+            return msg;
+        }
+
+        @Override
+        public User getAuthor() {
+            return User.getUnknown();
+        }
+
+        @Override
+        public Collection<String> getAffectedPaths() {
+            return Arrays.asList("src/" + msg.hashCode());
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package hudson.plugins.mantis.changeset;
+
+import hudson.model.User;
+import hudson.scm.ChangeLogSet;
+import hudson.scm.RepositoryBrowser;
+import hudson.scm.SubversionChangeLogSet;
+import java.util.Collection;
+import java.util.Collections;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+public class ChangeSetFactoryTest {
+
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    @Test
+    public void testAdapterOfPlugin() {
+        ChangeSetAdapter adapter = ChangeSetFactory.getAdapter(SubversionChangeLogSet.LogEntry.class);
+        assertTrue(adapter instanceof SubversionChangeSet.Adapter);
+        assertSame(adapter, ChangeSetFactory.getAdapter(SubversionChangeLogSet.LogEntry.class));
+    }
+
+    @Test
+    public void testUnknownEntry() {
+        ChangeSet changeSet = ChangeSetFactory.newInstance(1, null, new UnknownEntry());
+        assertTrue(changeSet instanceof DefaultChangeSet);
+    }
+
+    @Test
+    public void testAdapterInstalledLater() {
+        assertTrue(ChangeSetFactory.newInstance(1, null, new UnknownEntry()) instanceof DefaultChangeSet);
+
+        final ChangeSetAdapter adapter = new ChangeSetAdapter() {
+            @Override
+            public boolean isApplicable(final Class<? extends ChangeLogSet.Entry> entryType) {
+                return UnknownEntry.class.equals(entryType);
+            }
+
+            @Override
+            public ChangeSet newInstance(final int id, final RepositoryBrowser<ChangeLogSet.Entry> repoBrowser,
+                    final ChangeLogSet.Entry entry) {
+                return new CompatibleChangeSet(id);
+            }
+        };
+        j.jenkins.getExtensionList(ChangeSetAdapter.class).add(adapter);
+        assertSame(adapter, ChangeSetFactory.getAdapter(UnknownEntry.class));
+    }
+
+    private static class UnknownEntry extends ChangeLogSet.Entry {
+
+        @Override
+        public String getMsg() {
+            return "fixed #1";
+        }
+
+        @Override
+        public User getAuthor() {
+            return User.getUnknown();
+        }
+
+        @Override
+        public Collection<String> getAffectedPaths() {
+            return Collections.emptyList();
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package hudson.plugins.mantis.scripts;
+
+import java.io.StringWriter;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class BoundedWriterTest {
+
+    @Test
+    public void testWithinLimit() throws Exception {
+        BoundedWriter writer = new BoundedWriter(10, null);
+        writer.write("12345");
+        writer.write("67890");
+        assertEquals("1234567890", writer.toString());
+        assertFalse(writer.isTruncated());
+    }
+
+    @Test
+    public void testTruncated() throws Exception {
+        StringWriter overflow = new StringWriter();
+        BoundedWriter writer = new BoundedWriter(8, overflow);
+        writer.write("12345");
+        writer.write("67890");
+        writer.write("abc");
+        assertEquals("12345678", writer.toString());
+        assertTrue(writer.isTruncated());
+        assertEquals("1234567890abc", overflow.toString());
+    }
+}
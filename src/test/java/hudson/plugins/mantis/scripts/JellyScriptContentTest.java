@@ -0,0 +1,52 @@
+package hudson.plugins.mantis.scripts;
+
+import hudson.model.FreeStyleBuild;
+import hudson.model.Result;
+import java.io.File;
+import org.apache.commons.io.FileUtils;
+import static org.junit.Assert.assertEquals;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+public class JellyScriptContentTest {
+
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    @Before
+    public void setUp() {
+        JellyScriptContent.clearCache();
+    }
+
+    @Test
+    public void testBundledTemplateIsCompiledOnce() throws Exception {
+        FreeStyleBuild build = j.buildAndAssertSuccess(j.createFreeStyleProject());
+        JellyScriptContent content = new JellyScriptContent();
+        long hits = JellyScriptContent.getCacheHitCount();
+        long misses = JellyScriptContent.getCacheMissCount();
+
+        String first = content.getContent(build, Result.FAILURE);
+        String second = content.getContent(build, Result.FAILURE);
+
+        assertEquals(first, second);
+        assertEquals(misses + 1, JellyScriptContent.getCacheMissCount());
+        assertEquals(hits + 1, JellyScriptContent.getCacheHitCount());
+    }
+
+    @Test
+    public void testUserTemplateIsRecompiledWhenModified() throws Exception {
+        FreeStyleBuild build = j.buildAndAssertSuccess(j.createFreeStyleProject());
+        File template = new File(j.jenkins.getRootDir(), "mantis/scripts/templates/descriptions/failure.jelly");
+        FileUtils.writeStringToFile(template, "<j:jelly xmlns:j=\"jelly:core\">first</j:jelly>");
+        template.setLastModified(1000000000000L);
+
+        JellyScriptContent content = new JellyScriptContent();
+        assertEquals("first", content.getContent(build, Result.FAILURE).trim());
+
+        FileUtils.writeStringToFile(template, "<j:jelly xmlns:j=\"jelly:core\">second</j:jelly>");
+        template.setLastModified(1000000060000L);
+        assertEquals("second", content.getContent(build, Result.FAILURE).trim());
+    }
+}
@@ -0,0 +1,120 @@
+package hudson.plugins.mantis.soap;
+
+import hudson.plugins.mantis.MantisHandlingException;
+import java.net.ConnectException;
+import javax.xml.namespace.QName;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import org.apache.axis.AxisFault;
+import org.apache.axis.Constants;
+import org.junit.Test;
+
+public class CircuitBreakerTest {
+
+    @Test
+    public void testOpensAfterConsecutiveTransportFailures() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker("test");
+        for (int i = 0; i < 4; i++) {
+            breaker.acquire();
+            breaker.onFailure(true, "connection refused");
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        breaker.acquire();
+        breaker.onFailure(true, "connection refused");
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        try {
+            breaker.acquire();
+            fail();
+        } catch (CircuitOpenException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testRejectedRequestsDoNotCount() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker("test");
+        for (int i = 0; i < 10; i++) {
+            breaker.acquire();
+            breaker.onFailure(i % 2 == 0, "issue not found");
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void testSoapFaultsDoNotOpen() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker("test");
+        for (int id = 1; id <= 10; id++) {
+            AxisFault fault = new AxisFault(new QName(Constants.URI_SOAP11_ENV, "Server"),
+                    "Issue #" + id + " not found.", null, null);
+            MantisHandlingException e = new MantisHandlingException(fault);
+            breaker.acquire();
+            breaker.onFailure(e.isTransportFailure(), e.getMessage());
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        for (int i = 0; i < 5; i++) {
+            MantisHandlingException e =
+                    new MantisHandlingException(AxisFault.makeFault(new ConnectException("Connection refused")));
+            breaker.acquire();
+            breaker.onFailure(e.isTransportFailure(), e.getMessage());
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    public void testAbortKeepsState() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker("test", 0);
+        for (int i = 0; i < 4; i++) {
+            breaker.acquire();
+            breaker.onFailure(true, "connection refused");
+        }
+        breaker.acquire();
+        breaker.abort();
+        breaker.acquire();
+        breaker.onFailure(true, "connection refused");
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+
+        // the trial call is aborted, so the next call is a trial again
+        breaker.acquire();
+        breaker.abort();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        breaker.acquire();
+        try {
+            breaker.acquire();
+            fail();
+        } catch (CircuitOpenException e) {
+            // the trial call is in progress
+        }
+    }
+
+    @Test
+    public void testTimeoutAdaptsToLatency() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker("test");
+        assertEquals(60000, breaker.getTimeout("getIssue"));
+
+        for (int i = 0; i < 20; i++) {
+            breaker.onSuccess("getIssue", 100);
+        }
+        assertEquals(5000, breaker.getTimeout("getIssue"));
+
+        for (int i = 0; i < 100; i++) {
+            breaker.onSuccess("getIssue", 10000);
+        }
+        assertEquals(40000, breaker.getTimeout("getIssue"));
+    }
+
+    @Test
+    public void testTimeoutIsKeptPerOperation() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker("test");
+        for (int i = 0; i < 100; i++) {
+            breaker.onSuccess("getIssue", 50);
+        }
+        for (int i = 0; i < 20; i++) {
+            breaker.onSuccess("getProjects", 8000);
+        }
+        assertEquals(5000, breaker.getTimeout("getIssue"));
+        assertEquals(32000, breaker.getTimeout("getProjects"));
+        assertEquals(60000, breaker.getTimeout("addIssue"));
+    }
+}
@@ -0,0 +1,73 @@
+package hudson.plugins.mantis.soap;
+
+import hudson.plugins.mantis.FakeMantisServer;
+import hudson.plugins.mantis.MantisHandlingException;
+import hudson.plugins.mantis.MantisSite;
+import hudson.plugins.mantis.soap.mantis120.MantisSessionImpl;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.apache.axis.Handler;
+import org.apache.axis.transport.http.HTTPSender;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+public class KeepAliveHTTPSenderTest {
+
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    private FakeMantisServer server;
+
+    private MantisSite site;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new FakeMantisServer();
+        server.setStatus(100, 10);
+        server.setStatus(101, 10);
+        site = new MantisSite(server.getUrl(), "V120", "test", "test", null, null);
+    }
+
+    @After
+    public void tearDown() {
+        server.stop();
+    }
+
+    @Test
+    public void testConnectionIsReused() throws Exception {
+        MantisSessionImpl session = new MantisSessionImpl(site);
+        assertTrue(session.createSender() instanceof KeepAliveHTTPSender);
+
+        assertEquals("summary of issue 100", session.getIssue(100).getSummary());
+        assertEquals("summary of issue 101", session.getIssue(101).getSummary());
+        assertEquals(1, server.getConnectionCount());
+    }
+
+    @Test
+    public void testKeepAliveDisabled() throws Exception {
+        MantisSessionImpl session = new NoKeepAliveSession(site);
+        assertTrue(session.createSender() instanceof HTTPSender);
+
+        assertEquals("summary of issue 100", session.getIssue(100).getSummary());
+        assertEquals("summary of issue 101", session.getIssue(101).getSummary());
+        assertEquals(2, server.getConnectionCount());
+    }
+
+    /**
+     * Session created as if disableKeepAlive were set.
+     */
+    private static final class NoKeepAliveSession extends MantisSessionImpl {
+
+        NoKeepAliveSession(final MantisSite site) throws MantisHandlingException {
+            super(site);
+        }
+
+        @Override
+        protected Handler createSender() {
+            return createSender(site.getUrl().toExternalForm(), false);
+        }
+    }
+}
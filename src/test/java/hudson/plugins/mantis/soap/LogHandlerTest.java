@@ -0,0 +1,27 @@
+package hudson.plugins.mantis.soap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class LogHandlerTest {
+
+    @Test
+    public void testAbbreviate() {
+        assertNull(LogHandler.abbreviate(null, 10));
+        assertEquals("<a/>", LogHandler.abbreviate("<a/>", 4));
+        assertEquals("<a/>", LogHandler.abbreviate("<a/>", 0));
+        assertEquals("<a>... (5 more characters)", LogHandler.abbreviate("<a>text</a>", 3));
+    }
+
+    @Test
+    public void testIsSampled() {
+        assertTrue(LogHandler.isSampled(0, 1));
+        assertTrue(LogHandler.isSampled(7, 1));
+        assertTrue(LogHandler.isSampled(0, 10));
+        assertFalse(LogHandler.isSampled(9, 10));
+        assertTrue(LogHandler.isSampled(20, 10));
+    }
+}
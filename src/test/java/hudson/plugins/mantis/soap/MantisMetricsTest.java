@@ -0,0 +1,38 @@
+package hudson.plugins.mantis.soap;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class MantisMetricsTest {
+
+    private static final String KEPT = "http://kept.example.com/mantis/";
+
+    private static final String REMOVED = "http://removed.example.com/mantis/";
+
+    @Test
+    public void testRetain() throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        MantisMetrics kept = MantisMetrics.get(KEPT);
+        MantisMetrics removed = MantisMetrics.get(REMOVED);
+        ObjectName keptName = MantisMetrics.getObjectName(kept.getOperation("getIssue"));
+        ObjectName removedName = MantisMetrics.getObjectName(removed.getOperation("getIssue"));
+        assertTrue(server.isRegistered(removedName));
+
+        MantisMetrics.retain(Collections.singleton(KEPT));
+
+        assertTrue(server.isRegistered(keptName));
+        assertFalse(server.isRegistered(removedName));
+        assertSame(kept, MantisMetrics.get(KEPT));
+        MantisMetrics added = MantisMetrics.get(REMOVED);
+        assertNotSame(removed, added);
+        assertEquals(0, added.getOperations().size());
+    }
+}
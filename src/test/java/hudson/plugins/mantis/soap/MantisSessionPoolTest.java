@@ -0,0 +1,79 @@
+package hudson.plugins.mantis.soap;
+
+import hudson.plugins.mantis.MantisSite;
+import java.net.URL;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+public class MantisSessionPoolTest {
+
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    @Before
+    public void setUp() {
+        MantisSessionPool.invalidateAll();
+    }
+
+    @Test
+    public void testSameSiteSharesPool() throws Exception {
+        MantisSite s1 = createMantisSite("test");
+        MantisSite s2 = createMantisSite("test");
+        MantisSite s3 = createMantisSite("other");
+
+        assertSame(MantisSessionPool.get(s1), MantisSessionPool.get(s2));
+        assertNotSame(MantisSessionPool.get(s1), MantisSessionPool.get(s3));
+    }
+
+    @Test
+    public void testBorrowAndRelease() throws Exception {
+        MantisSite site = createMantisSite("test");
+        MantisSessionPool pool = MantisSessionPool.get(site);
+
+        MantisSession session = pool.borrow(site);
+        assertEquals(0, pool.getHitCount());
+        assertEquals(1, pool.getMissCount());
+
+        pool.release(session);
+        assertEquals(1, pool.getIdleCount());
+        assertSame(session, pool.borrow(site));
+        assertEquals(1, pool.getHitCount());
+        assertEquals(0, pool.getIdleCount());
+    }
+
+    @Test
+    public void testInFlightCount() throws Exception {
+        MantisSite site = createMantisSite("test");
+        MantisSessionPool pool = MantisSessionPool.get(site);
+
+        MantisSession s1 = pool.borrow(site);
+        MantisSession s2 = pool.borrow(site);
+        assertEquals(2, pool.getInFlightCount());
+
+        pool.release(s1);
+        pool.release(s2);
+        assertEquals(0, pool.getInFlightCount());
+        assertEquals(0, pool.getQueueLength());
+    }
+
+    @Test
+    public void testInvalidateAll() throws Exception {
+        MantisSite site = createMantisSite("test");
+        MantisSessionPool pool = MantisSessionPool.get(site);
+        pool.release(pool.borrow(site));
+
+        MantisSessionPool.invalidateAll();
+
+        assertEquals(0, pool.getIdleCount());
+        assertNotSame(pool, MantisSessionPool.get(site));
+    }
+
+    private MantisSite createMantisSite(String password) throws Exception {
+        return new MantisSite(new URL("http://localhost/mantis/"), "V120", "test", password, null, null);
+    }
+}
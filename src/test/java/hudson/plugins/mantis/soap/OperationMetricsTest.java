@@ -0,0 +1,28 @@
+package hudson.plugins.mantis.soap;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+public class OperationMetricsTest {
+
+    @Test
+    public void testRecord() {
+        OperationMetrics metrics = new OperationMetrics("http://localhost/mantis/", "getIssue");
+        metrics.record(0, 5, false, 1, 300, 200);
+        metrics.record(2, 80, false, 3, 300, 200);
+        metrics.record(4, 20000, true, 1, 0, 200);
+        metrics.recordRejected();
+
+        assertEquals(3, metrics.getCount());
+        assertEquals(5, metrics.getRequestCount());
+        assertEquals(1, metrics.getErrorCount());
+        assertEquals(1, metrics.getRejectedCount());
+        assertEquals(20000, metrics.getMaxLatency());
+        assertEquals(2.0, metrics.getAverageWaitTime(), 0.001);
+        assertEquals(600, metrics.getBytesIn());
+        assertEquals(600, metrics.getBytesOut());
+        assertArrayEquals(new long[] { 1, 0, 1, 0, 0, 0, 0, 0, 0, 1 }, metrics.getLatencyHistogram());
+        assertEquals(20000, metrics.getLatencyPercentile99());
+    }
+}
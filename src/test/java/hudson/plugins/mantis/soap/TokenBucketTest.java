@@ -0,0 +1,21 @@
+package hudson.plugins.mantis.soap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class TokenBucketTest {
+
+    @Test
+    public void testBurstThenWait() {
+        TokenBucket bucket = new TokenBucket(1, 2);
+        assertEquals(0, bucket.reserve());
+        assertEquals(0, bucket.reserve());
+
+        long first = bucket.reserve();
+        long second = bucket.reserve();
+        assertTrue(first > 0);
+        // the next caller waits for the following token
+        assertTrue(second > first);
+    }
+}